@@ -0,0 +1,56 @@
+package org.dacci.junk.bench;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.nodes.Node;
+
+import org.dacci.junk.util.CloudFormationConstructor;
+import org.dacci.junk.util.CloudFormationRepresenter;
+import org.dacci.junk.util.CloudFormationYaml;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CloudFormationBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private Templates.Size size;
+
+  private Node node;
+  private Map<String, Object> template;
+
+  private CloudFormationConstructor constructor;
+  private CloudFormationRepresenter representer;
+
+  @Setup
+  public void setUp() {
+    node = new CloudFormationYaml().compose(new StringReader(Templates.yaml(size)));
+    template = Templates.template(size);
+
+    constructor = new CloudFormationConstructor();
+    var dumperOptions = new DumperOptions();
+    representer = new CloudFormationRepresenter(dumperOptions);
+    representer.setDefaultScalarStyle(dumperOptions.getDefaultScalarStyle());
+    representer.setDefaultFlowStyle(dumperOptions.getDefaultFlowStyle());
+  }
+
+  @Benchmark
+  public Object constructObject() {
+    return constructor.construct(node);
+  }
+
+  @Benchmark
+  public Node represent() {
+    return representer.represent(template);
+  }
+}
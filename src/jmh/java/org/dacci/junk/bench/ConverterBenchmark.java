@@ -0,0 +1,103 @@
+package org.dacci.junk.bench;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.dacci.junk.Main;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConverterBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private Templates.Size size;
+
+  private Path directory;
+
+  private Runnable fromYaml;
+  private Runnable fromYamlCfn;
+  private Runnable fromYamlStream;
+  private Runnable fromYamlCfnStream;
+  private Runnable fromJson;
+  private Runnable fromJsonCfn;
+  private Runnable fromJsonStream;
+
+  static Runnable command(String... args) {
+    var parseResult = Main.createCommandLine(args).parseArgs(args);
+    while (parseResult.hasSubcommand()) parseResult = parseResult.subcommand();
+    return parseResult.commandSpec().commandLine().getCommand();
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("junk-bench");
+
+    var plainYaml =
+        Files.writeString(directory.resolve("plain.yaml"), Templates.plainYaml(size), UTF_8);
+    var yaml = Files.writeString(directory.resolve("template.yaml"), Templates.yaml(size), UTF_8);
+    var json = Files.writeString(directory.resolve("template.json"), Templates.json(size), UTF_8);
+
+    fromYaml = command("json", "from-yaml", plainYaml.toString());
+    fromYamlCfn = command("json", "from-yaml", "--cfn", yaml.toString());
+    fromYamlStream = command("json", "from-yaml", "--stream", plainYaml.toString());
+    fromYamlCfnStream = command("json", "from-yaml", "--cfn", "--stream", yaml.toString());
+    fromJson = command("yaml", "from-json", json.toString());
+    fromJsonCfn = command("yaml", "--cfn", "from-json", json.toString());
+    fromJsonStream = command("yaml", "from-json", "--stream", json.toString());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  @Benchmark
+  public void fromYaml() {
+    fromYaml.run();
+  }
+
+  @Benchmark
+  public void fromYamlCfn() {
+    fromYamlCfn.run();
+  }
+
+  @Benchmark
+  public void fromYamlStream() {
+    fromYamlStream.run();
+  }
+
+  @Benchmark
+  public void fromYamlCfnStream() {
+    fromYamlCfnStream.run();
+  }
+
+  @Benchmark
+  public void fromJson() {
+    fromJson.run();
+  }
+
+  @Benchmark
+  public void fromJsonCfn() {
+    fromJsonCfn.run();
+  }
+
+  @Benchmark
+  public void fromJsonStream() {
+    fromJsonStream.run();
+  }
+}
@@ -0,0 +1,76 @@
+package org.dacci.junk.bench;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks the commands formatting their input in place, which is restored before each invocation
+ * so that every one of them has the file to rewrite.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatterBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private Templates.Size size;
+
+  private Path directory;
+
+  private String configJson;
+  private String pom;
+  private Path configFile;
+  private Path pomFile;
+
+  private Runnable sortConfig;
+  private Runnable formatPom;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("junk-bench");
+
+    configJson = Templates.configJson(size);
+    pom = Templates.pom(size);
+    configFile = directory.resolve("config.json");
+    pomFile = directory.resolve("pom.xml");
+
+    sortConfig = ConverterBenchmark.command("json", "sort-config", configFile.toString());
+    formatPom = ConverterBenchmark.command("xml", "format-pom", pomFile.toString());
+  }
+
+  @Setup(Level.Invocation)
+  public void restore() throws IOException {
+    Files.writeString(configFile, configJson, UTF_8);
+    Files.writeString(pomFile, pom, UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  @Benchmark
+  public void sortConfig() {
+    sortConfig.run();
+  }
+
+  @Benchmark
+  public void formatPom() {
+    formatPom.run();
+  }
+}
@@ -0,0 +1,91 @@
+package org.dacci.junk.bench;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.fasterxml.jackson.core.util.Instantiatable;
+
+/** The pretty printer before indentation was cached, kept as the baseline of the benchmark. */
+class LegacyPrettyPrinter implements Instantiatable<LegacyPrettyPrinter>, PrettyPrinter {
+  private final String lineSeparator;
+  private final String indent;
+
+  private int level = 0;
+
+  LegacyPrettyPrinter(String lineSeparator, String indent) {
+    this.lineSeparator = lineSeparator;
+    this.indent = indent;
+  }
+
+  LegacyPrettyPrinter(LegacyPrettyPrinter base) {
+    lineSeparator = base.lineSeparator;
+    indent = base.indent;
+  }
+
+  @Override
+  public LegacyPrettyPrinter createInstance() {
+    return new LegacyPrettyPrinter(this);
+  }
+
+  private static void writeIndent(JsonGenerator gen, int level, String content) throws IOException {
+    for (int i = 0; i < level; ++i) gen.writeRaw(content);
+  }
+
+  @Override
+  public void writeRootValueSeparator(JsonGenerator gen) throws IOException {}
+
+  @Override
+  public void writeStartObject(JsonGenerator gen) throws IOException {
+    gen.writeRaw("{");
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, ++level, indent);
+  }
+
+  @Override
+  public void writeEndObject(JsonGenerator gen, int nrOfEntries) throws IOException {
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, --level, indent);
+    gen.writeRaw("}");
+    if (level == 0) gen.writeRaw(lineSeparator);
+  }
+
+  @Override
+  public void writeObjectEntrySeparator(JsonGenerator gen) throws IOException {
+    gen.writeRaw(",");
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, level, indent);
+  }
+
+  @Override
+  public void writeObjectFieldValueSeparator(JsonGenerator gen) throws IOException {
+    gen.writeRaw(": ");
+  }
+
+  @Override
+  public void writeStartArray(JsonGenerator gen) throws IOException {
+    gen.writeRaw("[");
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, ++level, indent);
+  }
+
+  @Override
+  public void writeEndArray(JsonGenerator gen, int nrOfValues) throws IOException {
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, --level, indent);
+    gen.writeRaw("]");
+  }
+
+  @Override
+  public void writeArrayValueSeparator(JsonGenerator gen) throws IOException {
+    gen.writeRaw(",");
+    gen.writeRaw(lineSeparator);
+    writeIndent(gen, level, indent);
+  }
+
+  @Override
+  public void beforeArrayValues(JsonGenerator gen) throws IOException {}
+
+  @Override
+  public void beforeObjectEntries(JsonGenerator gen) throws IOException {}
+}
@@ -0,0 +1,67 @@
+package org.dacci.junk.bench;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.dacci.junk.util.CloudFormationModule;
+import org.dacci.junk.util.JsonStringifyPrettyPrinter;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PrettyPrinterBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private Templates.Size size;
+
+  private Map<String, Object> template;
+
+  private ObjectMapper json;
+  private ObjectMapper legacyJson;
+  private JsonStringifyPrettyPrinter compactPrinter;
+
+  @Setup
+  public void setUp() {
+    template = Templates.template(size);
+
+    json =
+        new ObjectMapper()
+            .setDefaultPrettyPrinter(JsonStringifyPrettyPrinter.builder().build())
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .registerModule(CloudFormationModule.getInstance());
+    legacyJson =
+        json.copy().setDefaultPrettyPrinter(new LegacyPrettyPrinter(System.lineSeparator(), "  "));
+    compactPrinter = JsonStringifyPrettyPrinter.builder().arrayWidth(80).build();
+  }
+
+  @Benchmark
+  public void jsonStringify() throws IOException {
+    json.writeValue(NullOutputStream.NULL_OUTPUT_STREAM, template);
+  }
+
+  @Benchmark
+  public void legacyJsonStringify() throws IOException {
+    legacyJson.writeValue(NullOutputStream.NULL_OUTPUT_STREAM, template);
+  }
+
+  @Benchmark
+  public void compactArrays() throws IOException {
+    var generator = json.writer().createGenerator(NullOutputStream.NULL_OUTPUT_STREAM);
+    try (var compact = compactPrinter.compactArrays(generator)) {
+      json.writeValue(compact, template);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package org.dacci.junk.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.Yaml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.dacci.junk.util.CloudFormationModule;
+import org.dacci.junk.util.CloudFormationYaml;
+import org.dacci.junk.util.cfn.Condition;
+import org.dacci.junk.util.cfn.Equals;
+import org.dacci.junk.util.cfn.GetAtt;
+import org.dacci.junk.util.cfn.If;
+import org.dacci.junk.util.cfn.Join;
+import org.dacci.junk.util.cfn.Not;
+import org.dacci.junk.util.cfn.Ref;
+import org.dacci.junk.util.cfn.Select;
+import org.dacci.junk.util.cfn.Sub;
+
+public final class Templates {
+  public enum Size {
+    SMALL(10),
+    MEDIUM(200),
+    LARGE(5000);
+
+    private final int resources;
+
+    Size(int resources) {
+      this.resources = resources;
+    }
+
+    public int getResources() {
+      return resources;
+    }
+  }
+
+  private static final ObjectMapper JSON =
+      new ObjectMapper()
+          .enable(SerializationFeature.INDENT_OUTPUT)
+          .registerModule(CloudFormationModule.getInstance());
+
+  private Templates() {}
+
+  public static Map<String, Object> template(Size size) {
+    var template = new LinkedHashMap<String, Object>();
+    template.put("AWSTemplateFormatVersion", "2010-09-09");
+    template.put("Description", "Synthetic template with " + size.getResources() + " resources");
+
+    var parameters = new LinkedHashMap<String, Object>();
+    parameters.put("Environment", Map.of("Type", "String", "Default", "dev"));
+    parameters.put("VpcId", Map.of("Type", "AWS::EC2::VPC::Id"));
+    template.put("Parameters", parameters);
+
+    var conditions = new LinkedHashMap<String, Object>();
+    conditions.put("IsProduction", new Equals(new Ref("Environment"), "prod"));
+    conditions.put("IsNotProduction", new Not(new Condition("IsProduction")));
+    template.put("Conditions", conditions);
+
+    var resources = new LinkedHashMap<String, Object>();
+    for (int i = 0; i < size.getResources(); ++i) {
+      switch (i % 3) {
+        case 0:
+          resources.put("SecurityGroup" + i, securityGroup(i));
+          break;
+
+        case 1:
+          resources.put("Instance" + i, instance(i));
+          break;
+
+        default:
+          resources.put("Bucket" + i, bucket(i));
+          break;
+      }
+    }
+    template.put("Resources", resources);
+
+    var outputs = new LinkedHashMap<String, Object>();
+    for (int i = 1; i < size.getResources(); i += 3) {
+      var output = new LinkedHashMap<String, Object>();
+      output.put("Value", new GetAtt("Instance" + i, "PrivateIp"));
+      output.put("Export", Map.of("Name", new Sub("${AWS::StackName}-Instance" + i, null)));
+      outputs.put("Instance" + i + "Ip", output);
+    }
+    template.put("Outputs", outputs);
+
+    return template;
+  }
+
+  private static List<Object> tags(int i) {
+    var tags = new ArrayList<>();
+    tags.add(Map.of("Key", "Name", "Value", new Sub("${AWS::StackName}-" + i, null)));
+    tags.add(Map.of("Key", "Environment", "Value", new Ref("Environment")));
+    tags.add(Map.of("Key", "Owner", "Value", "platform-team"));
+    return tags;
+  }
+
+  private static Map<String, Object> securityGroup(int i) {
+    var ingress = new LinkedHashMap<String, Object>();
+    ingress.put("IpProtocol", "tcp");
+    ingress.put("FromPort", 443);
+    ingress.put("ToPort", 443);
+    ingress.put("CidrIp", "10.0." + (i % 256) + ".0/24");
+
+    var properties = new LinkedHashMap<String, Object>();
+    properties.put("GroupDescription", "Security group " + i);
+    properties.put("VpcId", new Ref("VpcId"));
+    properties.put("SecurityGroupIngress", List.of(ingress));
+    properties.put("Tags", tags(i));
+
+    var resource = new LinkedHashMap<String, Object>();
+    resource.put("Type", "AWS::EC2::SecurityGroup");
+    resource.put("Properties", properties);
+    return resource;
+  }
+
+  private static Map<String, Object> instance(int i) {
+    var properties = new LinkedHashMap<String, Object>();
+    properties.put("ImageId", "ami-0123456789abcdef0");
+    properties.put("InstanceType", new If("IsProduction", "m5.large", "t3.micro"));
+    properties.put("SecurityGroupIds", List.of(new Ref("SecurityGroup" + (i - 1))));
+    properties.put(
+        "AvailabilityZone", new Select(0, List.of("ap-northeast-1a", "ap-northeast-1c")));
+    properties.put("UserData", new Join("", List.of("#!/bin/bash\n", "echo ", new Ref("VpcId"))));
+    properties.put("Tags", tags(i));
+
+    var resource = new LinkedHashMap<String, Object>();
+    resource.put("Type", "AWS::EC2::Instance");
+    resource.put("DependsOn", List.of("SecurityGroup" + (i - 1)));
+    resource.put("Properties", properties);
+    return resource;
+  }
+
+  private static Map<String, Object> bucket(int i) {
+    var properties = new LinkedHashMap<String, Object>();
+    properties.put("BucketName", new Sub("${AWS::StackName}-bucket-" + i, null));
+    properties.put("VersioningConfiguration", Map.of("Status", "Enabled"));
+    properties.put("Tags", tags(i));
+
+    var resource = new LinkedHashMap<String, Object>();
+    resource.put("Type", "AWS::S3::Bucket");
+    resource.put("Condition", "IsProduction");
+    resource.put("Properties", properties);
+    return resource;
+  }
+
+  public static String yaml(Size size) {
+    var options = new DumperOptions();
+    options.setDefaultFlowStyle(FlowStyle.BLOCK);
+    return new CloudFormationYaml(options).dump(template(size));
+  }
+
+  public static String plainYaml(Size size) throws IOException {
+    var options = new DumperOptions();
+    options.setDefaultFlowStyle(FlowStyle.BLOCK);
+    var yaml = new Yaml(options);
+    return yaml.dump(yaml.load(json(size)));
+  }
+
+  public static String json(Size size) throws IOException {
+    return JSON.writeValueAsString(template(size));
+  }
+
+  public static Map<String, Object> config(Size size) {
+    var config = new LinkedHashMap<String, Object>();
+    for (int i = size.getResources() - 1; i >= 0; --i) {
+      var section = new LinkedHashMap<String, Object>();
+      section.put("timeout", 30 + i);
+      section.put("ratio", 0.25 * i);
+      section.put("enabled", i % 2 == 0);
+      section.put("name", "service-" + i);
+      section.put(
+          "hosts", List.of("host-" + i + ".example.com", "host-" + (i + 1) + ".example.com"));
+      config.put("[section" + i + "]", section);
+      config.put("key" + i, "value" + i);
+    }
+    return config;
+  }
+
+  public static String configJson(Size size) throws IOException {
+    return JSON.writeValueAsString(config(size));
+  }
+
+  public static String pom(Size size) throws IOException {
+    var model = new Model();
+    model.setModelVersion("4.0.0");
+    model.setGroupId("org.dacci");
+    model.setArtifactId("synthetic");
+    model.setVersion("1.0.0-SNAPSHOT");
+
+    for (int i = size.getResources() - 1; i >= 0; --i) {
+      var dependency = new Dependency();
+      dependency.setGroupId("org.example.group" + i);
+      dependency.setArtifactId("artifact-" + i);
+      dependency.setVersion("1." + i);
+      model.addDependency(dependency);
+    }
+
+    var writer = new StringWriter();
+    new MavenXpp3Writer().write(writer, model);
+    return writer.toString();
+  }
+}
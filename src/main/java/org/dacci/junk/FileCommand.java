@@ -0,0 +1,629 @@
+package org.dacci.junk;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.dacci.junk.util.InputLimits;
+import org.dacci.junk.util.OutputBuffer;
+
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.IExitCodeGenerator;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Base class of the commands that process each of their input files independently. Files are
+ * processed on a fixed pool of platform threads rather than the common fork-join pool, since
+ * processing a file is dominated by blocking I/O.
+ */
+@Slf4j
+public abstract class FileCommand implements Runnable, IExitCodeGenerator {
+  private class Walk {
+    private final Executor executor;
+    private final Consumer<Path> action;
+    private final PathMatcher include = includeMatcher();
+    private final PathMatcher exclude = matcher(excludes);
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Walk(Executor executor, Consumer<Path> action) {
+      this.executor = executor;
+      this.action = action;
+    }
+
+    void add(Path path) {
+      if (Files.isDirectory(path)) {
+        submit(() -> list(path, path));
+      } else {
+        submit(() -> action.accept(path));
+      }
+    }
+
+    private void list(Path root, Path directory) {
+      try (var entries = Files.newDirectoryStream(directory)) {
+        for (var entry : entries) {
+          var relative = root.relativize(entry);
+          if (exclude.matches(relative)) continue;
+
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            submit(() -> list(root, entry));
+          } else if (include.matches(relative) && Files.isRegularFile(entry)) {
+            submit(() -> action.accept(entry));
+          }
+        }
+      } catch (IOException e) {
+        log.warn("Failed to list {}", directory, e);
+      }
+    }
+
+    private void submit(Runnable task) {
+      pending.incrementAndGet();
+      executor.execute(
+          () -> {
+            try {
+              task.run();
+            } catch (RuntimeException | Error e) {
+              failure.compareAndSet(null, e);
+            } finally {
+              arrive();
+            }
+          });
+    }
+
+    private void arrive() {
+      if (pending.decrementAndGet() == 0) done.countDown();
+    }
+
+    void await() {
+      arrive();
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      var e = failure.get();
+      if (e instanceof RuntimeException) throw (RuntimeException) e;
+      if (e instanceof Error) throw (Error) e;
+    }
+  }
+
+  private class Watcher implements Closeable {
+    private final WatchService service = FileSystems.getDefault().newWatchService();
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Path> roots = new HashMap<>();
+    private final Set<Path> files = new HashSet<>();
+    private final PathMatcher include = includeMatcher();
+    private final PathMatcher exclude = matcher(excludes);
+
+    Watcher() throws IOException {}
+
+    void add(Path path) throws IOException {
+      // a directory registered twice under different names yields the same key
+      path = path.toAbsolutePath().normalize();
+      if (Files.isDirectory(path)) {
+        register(path, path, null);
+      } else {
+        files.add(path);
+        register(null, path.getParent(), null);
+      }
+    }
+
+    private void register(Path root, Path directory, Set<Path> found) throws IOException {
+      directories.put(directory.register(service, ENTRY_CREATE, ENTRY_MODIFY), directory);
+      if (root == null) return;
+
+      roots.put(directory, root);
+      try (var entries = Files.newDirectoryStream(directory)) {
+        for (var entry : entries) {
+          var relative = root.relativize(entry);
+          if (exclude.matches(relative)) continue;
+
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            register(root, entry, found);
+          } else if (found != null && include.matches(relative) && Files.isRegularFile(entry)) {
+            found.add(entry);
+          }
+        }
+      }
+    }
+
+    Set<Path> take() throws InterruptedException {
+      var changes = new LinkedHashSet<Path>();
+      for (var key = service.take();
+          key != null;
+          key = service.poll(debounce, TimeUnit.MILLISECONDS)) {
+        collect(key, changes);
+      }
+      return changes;
+    }
+
+    private void collect(WatchKey key, Set<Path> changes) {
+      var directory = directories.get(key);
+      for (var event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          log.warn("Missed changes in {}", directory);
+          continue;
+        }
+
+        var path = directory.resolve((Path) event.context());
+        if (files.contains(path)) {
+          changes.add(path);
+          continue;
+        }
+
+        var root = roots.get(directory);
+        if (root == null) continue;
+
+        var relative = root.relativize(path);
+        if (exclude.matches(relative)) continue;
+
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+          if (event.kind() != ENTRY_CREATE) continue;
+          try {
+            register(root, path, changes);
+          } catch (IOException e) {
+            log.warn("Failed to watch {}", path, e);
+          }
+        } else if (include.matches(relative) && Files.isRegularFile(path)) {
+          changes.add(path);
+        }
+      }
+
+      if (!key.reset()) roots.remove(directories.remove(key));
+    }
+
+    @Override
+    public void close() throws IOException {
+      service.close();
+    }
+  }
+
+  private static class Deadline implements Runnable {
+    private final Thread thread = Thread.currentThread();
+
+    private boolean done;
+    private boolean expired;
+
+    @Override
+    public synchronized void run() {
+      if (done) return;
+
+      expired = true;
+      thread.interrupt();
+    }
+
+    synchronized boolean finish() {
+      done = true;
+      if (expired) Thread.interrupted();
+      return expired;
+    }
+  }
+
+  private static final Path HYPHEN_PATH = Paths.get("-");
+
+  // not recorded in the manifest, as they do not affect the output
+  private static final Set<String> EXECUTION_OPTIONS =
+      Set.of(
+          "--jobs",
+          "--incremental",
+          "--manifest",
+          "--include",
+          "--exclude",
+          "--watch",
+          "--debounce",
+          "--check",
+          "--max-depth",
+          "--max-document-bytes",
+          "--max-code-points",
+          "--max-aliases",
+          "--max-string-length",
+          "--max-expanded-bytes",
+          "--timeout");
+
+  @Spec private CommandSpec spec;
+
+  @Option(
+      names = {"-j", "--jobs"},
+      description = "number of files to process concurrently (default: number of processors)")
+  private int jobs = Runtime.getRuntime().availableProcessors();
+
+  @Option(names = "--incremental", description = "skip files processed the same way before")
+  private boolean incremental;
+
+  @Option(
+      names = "--manifest",
+      defaultValue = ".junk-manifest",
+      description = "manifest of the processed files (default: ${DEFAULT-VALUE})")
+  private Path manifestFile;
+
+  @Option(
+      names = "--include",
+      paramLabel = "<glob>",
+      description = "process the files in directories matching the glob")
+  private List<String> includes = new ArrayList<>();
+
+  @Option(
+      names = "--exclude",
+      paramLabel = "<glob>",
+      description = "skip the files and directories matching the glob")
+  private List<String> excludes = new ArrayList<>();
+
+  @Option(
+      names = "--watch",
+      description = "keep running and process the files again when they are changed")
+  private boolean watch;
+
+  @Option(
+      names = "--debounce",
+      paramLabel = "<millis>",
+      defaultValue = "200",
+      description =
+          "time to wait for further changes before processing (default: ${DEFAULT-VALUE})")
+  private long debounce;
+
+  @Option(
+      names = "--check",
+      description =
+          "list the files that are not up to date instead of writing them, and exit with 1 if any")
+  private boolean check;
+
+  @Option(
+      names = "--max-depth",
+      paramLabel = "<depth>",
+      defaultValue = "1000",
+      description = "number of collections allowed to be nested (default: ${DEFAULT-VALUE})")
+  private int maxDepth;
+
+  @Option(
+      names = "--max-document-bytes",
+      paramLabel = "<bytes>",
+      defaultValue = "0",
+      description = "size allowed for an input file, or 0 for any size (default: ${DEFAULT-VALUE})")
+  private long maxDocumentBytes;
+
+  @Option(
+      names = "--max-code-points",
+      paramLabel = "<count>",
+      defaultValue = "3145728",
+      description =
+          "number of code points allowed in a YAML document, or 0 for any number"
+              + " (default: ${DEFAULT-VALUE})")
+  private long maxCodePoints;
+
+  @Option(
+      names = "--max-aliases",
+      paramLabel = "<count>",
+      defaultValue = "50",
+      description =
+          "number of aliases to collections allowed in a YAML document (default: ${DEFAULT-VALUE})")
+  private int maxAliases;
+
+  @Option(
+      names = "--max-string-length",
+      paramLabel = "<length>",
+      defaultValue = "20000000",
+      description = "length allowed for a string or a key (default: ${DEFAULT-VALUE})")
+  private int maxStringLength;
+
+  @Option(
+      names = "--timeout",
+      paramLabel = "<millis>",
+      defaultValue = "0",
+      description = "time allowed to process a file, or 0 for no limit (default: ${DEFAULT-VALUE})")
+  private long timeout;
+
+  private final AtomicBoolean failed = new AtomicBoolean();
+  private final ThreadLocal<OutputBuffer> outputBuffer = ThreadLocal.withInitial(OutputBuffer::new);
+  private Manifest manifest;
+  private InputStream in = System.in;
+  private PrintStream out = System.out;
+  private ScheduledExecutorService timer;
+
+  /**
+   * Returns the globs of the files to process in directories when no {@code --include} is given.
+   */
+  protected List<String> defaultIncludes() {
+    return List.of("**");
+  }
+
+  /**
+   * Processes the file, logging the failure if any.
+   *
+   * @return whether the file has been processed successfully
+   */
+  protected abstract boolean processFile(Path file);
+
+  /** Returns the limits to read the input files within. */
+  protected InputLimits inputLimits() {
+    return InputLimits.builder()
+        .maxDepth(maxDepth)
+        .maxCodePoints(maxCodePoints)
+        .maxAliases(maxAliases)
+        .maxStringLength(maxStringLength)
+        .build();
+  }
+
+  /** Returns the file the output of processing {@code file} is written to. */
+  protected Path outputFile(Path file) {
+    return file;
+  }
+
+  /** Returns the emptied buffer of the current thread to render the output for a file into. */
+  protected OutputBuffer outputBuffer() {
+    var buffer = outputBuffer.get();
+    buffer.reset();
+    return buffer;
+  }
+
+  /**
+   * Replaces {@code file} with the content of {@code buffer} if it differs, or lists {@code file}
+   * with {@code --check}.
+   *
+   * @return whether the file differed
+   */
+  protected boolean writeOutput(OutputBuffer buffer, Path file) throws IOException {
+    if (!check) return buffer.writeTo(file);
+
+    if (buffer.contentEquals(file)) return false;
+    report(file);
+    return true;
+  }
+
+  /** Replaces {@code file} with the content streamed if it differs, or lists it if checking. */
+  protected void writeOutput(Path file, OutputBuffer.Content content) throws IOException {
+    if (!check) {
+      OutputBuffer.replace(file, content);
+    } else if (!OutputBuffer.contentEquals(file, content)) {
+      report(file);
+    }
+  }
+
+  /**
+   * Deletes {@code file} left by an earlier run, or lists {@code file} with {@code --check}.
+   *
+   * @return whether the file existed
+   */
+  protected boolean deleteOutput(Path file) throws IOException {
+    if (!check) return Files.deleteIfExists(file);
+
+    if (!Files.exists(file)) return false;
+    report(file);
+    return true;
+  }
+
+  private void report(Path file) {
+    failed.set(true);
+    out.println(file);
+  }
+
+  /** Returns the standard input of the execution. */
+  protected InputStream stdin() {
+    return in;
+  }
+
+  /** Returns the stream to write the output for the standard input to. */
+  protected PrintStream stdout() {
+    return out;
+  }
+
+  @Override
+  public int getExitCode() {
+    return failed.get() ? 1 : 0;
+  }
+
+  private PathMatcher includeMatcher() {
+    return matcher(includes.isEmpty() ? defaultIncludes() : includes);
+  }
+
+  private static PathMatcher matcher(List<String> globs) {
+    var fileSystem = FileSystems.getDefault();
+    var matchers = new ArrayList<PathMatcher>();
+    for (var glob : globs) {
+      matchers.add(fileSystem.getPathMatcher("glob:" + glob));
+      // let **/ match no directory at all, like it does in .gitignore
+      if (glob.startsWith("**/"))
+        matchers.add(fileSystem.getPathMatcher("glob:" + glob.substring(3)));
+    }
+    return path -> matchers.stream().anyMatch(matcher -> matcher.matches(path));
+  }
+
+  /** Processes the files, and the files matching the globs in the directories. */
+  protected void processFiles(Collection<Path> files) {
+    var execution = Main.of(spec);
+    in = execution.getIn();
+    out = execution.getOut();
+    if (watch && execution.isForwarded()) {
+      execution.getErr().println("Cannot watch files through the daemon");
+      failed.set(true);
+      return;
+    }
+
+    Consumer<Path> action = this::process;
+    if (check) {
+      if (files.contains(HYPHEN_PATH)) {
+        log.error("Cannot check the standard input");
+        failed.set(true);
+        return;
+      }
+    } else if (incremental) {
+      try {
+        manifest = Manifest.load(manifestFile, spec.qualifiedName(), configuration());
+        action = this::processIncrementally;
+      } catch (IOException e) {
+        log.warn("Failed to load manifest, processing every file", e);
+      }
+    }
+
+    var threads = jobs;
+    if (files.size() <= 1 && files.stream().noneMatch(Files::isDirectory)) threads = 1;
+
+    var pool = threads <= 1 ? null : Executors.newFixedThreadPool(threads);
+    Executor executor = pool == null ? Runnable::run : pool;
+    if (timeout > 0) timer = Executors.newSingleThreadScheduledExecutor();
+    try {
+      if (watch) {
+        watch(executor, files, action);
+      } else {
+        forEachFile(executor, files, action);
+      }
+    } finally {
+      if (pool != null) pool.shutdownNow();
+      if (timer != null) timer.shutdownNow();
+      saveManifest();
+    }
+  }
+
+  private void saveManifest() {
+    if (manifest == null) return;
+
+    try {
+      manifest.save();
+    } catch (IOException e) {
+      log.error("Failed to save manifest", e);
+    }
+  }
+
+  private String configuration() {
+    var configuration = new StringBuilder();
+    for (var command = spec; command != null; command = command.parent()) {
+      for (var option : command.options()) {
+        if (EXECUTION_OPTIONS.contains(option.longestName())) continue;
+        Object value = option.getValue();
+        configuration.append(option.longestName()).append('=').append(value);
+        configuration.append('\n');
+      }
+    }
+    return configuration.toString();
+  }
+
+  private boolean process(Path file) {
+    try {
+      if (maxDocumentBytes > 0
+          && !file.equals(HYPHEN_PATH)
+          && Files.size(file) > maxDocumentBytes) {
+        log.error("{} exceeds the limit of {} bytes", file, maxDocumentBytes);
+        failed.set(true);
+        return false;
+      }
+    } catch (IOException e) {
+      // let the command report the file that cannot be read
+    }
+
+    if (timer == null) return tryProcessFile(file);
+
+    var deadline = new Deadline();
+    var interrupt = timer.schedule(deadline, timeout, TimeUnit.MILLISECONDS);
+    var processed = false;
+    try {
+      processed = tryProcessFile(file);
+    } finally {
+      interrupt.cancel(false);
+      if (deadline.finish() && !processed) {
+        log.error("{} was abandoned after {} ms", file, timeout);
+      }
+    }
+
+    return processed;
+  }
+
+  private boolean tryProcessFile(Path file) {
+    var processed = false;
+    try {
+      processed = processFile(file);
+    } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+      log.error("Failed to process {}", file, e);
+    }
+
+    if (!processed) failed.set(true);
+    return processed;
+  }
+
+  private void processIncrementally(Path file) {
+    if (file.equals(HYPHEN_PATH)) {
+      process(file);
+      return;
+    }
+
+    String hash;
+    try {
+      hash = Manifest.hash(file);
+    } catch (IOException e) {
+      process(file);
+      return;
+    }
+
+    var output = outputFile(file);
+    if (manifest.contains(file, hash) && Files.exists(output)) return;
+
+    if (!process(file)) return;
+
+    try {
+      manifest.put(file, output.equals(file) ? Manifest.hash(file) : hash);
+    } catch (IOException e) {
+      log.warn("Failed to record {}", file, e);
+    }
+  }
+
+  private void forEachFile(Executor executor, Collection<Path> paths, Consumer<Path> action) {
+    var walk = new Walk(executor, action);
+    paths.forEach(walk::add);
+    walk.await();
+  }
+
+  private void watch(Executor executor, Collection<Path> paths, Consumer<Path> action) {
+    try (var watcher = new Watcher()) {
+      // register first so that no change made during the initial pass is missed
+      for (var path : paths) {
+        if (!path.equals(HYPHEN_PATH)) watcher.add(path);
+      }
+
+      forEachFile(executor, paths, action);
+      saveManifest();
+      log.info("Watching for changes");
+      while (true) {
+        var changes = watcher.take();
+        if (changes.isEmpty()) continue;
+
+        forEachFile(executor, changes, action);
+        saveManifest();
+      }
+    } catch (IOException e) {
+      log.error("Failed to watch", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,27 +1,55 @@
 package org.dacci.junk;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.dacci.junk.daemon.Client;
+import org.dacci.junk.daemon.Daemon;
 import org.dacci.junk.json.JsonCommands;
 import org.dacci.junk.xml.XmlCommands;
 import org.dacci.junk.yaml.YamlCommands;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.InitializationException;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
 
-@Command(
-    name = "junk",
-    subcommands = {JsonCommands.class, YamlCommands.class, XmlCommands.class})
+@Command(name = "junk")
+@Main.LazySubcommands({JsonCommands.class, YamlCommands.class, XmlCommands.class, Daemon.class})
 public class Main implements Runnable {
+  /**
+   * Declares the subcommands in place of {@link Command#subcommands()}. Only the subcommands named
+   * on the command line are instantiated; the others are stood in for by their name and
+   * description, so that picocli never reflects over their classes nor loads the libraries they
+   * use.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.TYPE)
+  public @interface LazySubcommands {
+    Class<?>[] value();
+  }
 
   public interface CommandGroup extends Runnable {
     @Override
     default void run() {
-      var queue = new ArrayDeque<>(COMMAND_LINE.getSubcommands().values());
+      var queue = new ArrayDeque<>(CURRENT.get().getSubcommands().values());
       while (!queue.isEmpty()) {
         var subcommand = queue.removeFirst();
         if (subcommand.getCommand() == this) {
-          subcommand.usage(System.out);
+          subcommand.usage(subcommand.getOut());
           return;
         }
 
@@ -32,14 +60,143 @@ public class Main implements Runnable {
     }
   }
 
-  private static final CommandLine COMMAND_LINE = new CommandLine(new Main());
+  private static final Path HYPHEN_PATH = Paths.get("-");
+
+  /** The command line being executed on the thread, for the command groups to find themselves. */
+  private static final ThreadLocal<CommandLine> CURRENT = new ThreadLocal<>();
+
+  @Spec private CommandSpec spec;
+
+  private final InputStream in;
+  private final PrintStream out;
+  private final PrintStream err;
+  private final boolean forwarded;
+
+  private Main(InputStream in, PrintStream out, PrintStream err, boolean forwarded) {
+    this.in = in;
+    this.out = out;
+    this.err = err;
+    this.forwarded = forwarded;
+  }
+
+  /**
+   * Returns the execution of the command of {@code spec}, or that of this process if the command is
+   * not executed through {@code Main}.
+   */
+  public static Main of(CommandSpec spec) {
+    var root = spec.root().userObject();
+    return root instanceof Main ? (Main) root : new Main(System.in, System.out, System.err, false);
+  }
+
+  /** Returns the stream the command reads its input from. */
+  public InputStream getIn() {
+    return in;
+  }
+
+  /** Returns the stream the command writes its output to. */
+  public PrintStream getOut() {
+    return out;
+  }
+
+  /** Returns the stream the command writes its errors to. */
+  public PrintStream getErr() {
+    return err;
+  }
+
+  /**
+   * Returns whether the command is executed on behalf of a client of the daemon, in which case it
+   * must not keep running.
+   */
+  public boolean isForwarded() {
+    return forwarded;
+  }
 
   public static void main(String... args) {
-    System.exit(COMMAND_LINE.execute(args));
+    var daemonFile = System.getenv(Client.FILE_ENV);
+    if (daemonFile != null) {
+      Client client = null;
+      try {
+        client = Client.connect(Paths.get(daemonFile));
+      } catch (IOException e) {
+        // no daemon to forward to, execute in this process
+      }
+
+      if (client != null) System.exit(client.execute(args));
+    }
+
+    System.exit(execute(args));
+  }
+
+  public static int execute(String... args) {
+    return execute(createCommandLine(args), args);
+  }
+
+  /**
+   * Executes a command on behalf of a client of the daemon, resolving relative paths against {@code
+   * workingDirectory} and using the streams given rather than those of this process, so that
+   * commands of several clients can run at once.
+   */
+  public static int execute(
+      Path workingDirectory, InputStream in, PrintStream out, PrintStream err, String... args) {
+    var commandLine =
+        createCommandLine(new Main(in, out, err, true), new HashSet<>(Arrays.asList(args)))
+            .registerConverter(Path.class, value -> toPath(workingDirectory, value));
+    commandLine.setOut(new PrintWriter(out, true));
+    commandLine.setErr(new PrintWriter(err, true));
+    return execute(commandLine, args);
+  }
+
+  private static int execute(CommandLine commandLine, String... args) {
+    var previous = CURRENT.get();
+    CURRENT.set(commandLine);
+    try {
+      return commandLine.execute(args);
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /** Creates the command line, instantiating only the subcommands named in {@code args}. */
+  public static CommandLine createCommandLine(String... args) {
+    return createCommandLine(
+        new Main(System.in, System.out, System.err, false), new HashSet<>(Arrays.asList(args)));
+  }
+
+  private static CommandLine createCommandLine(Object command, Set<String> args) {
+    var commandLine = new CommandLine(command);
+    var subcommands = command.getClass().getAnnotation(LazySubcommands.class);
+    if (subcommands == null) return commandLine;
+
+    for (var type : subcommands.value()) {
+      var annotation = type.getAnnotation(Command.class);
+      CommandLine subcommand;
+      if (args.contains(annotation.name())
+          || Arrays.stream(annotation.aliases()).anyMatch(args::contains)) {
+        try {
+          subcommand = createCommandLine(CommandLine.defaultFactory().create(type), args);
+        } catch (Exception e) {
+          throw new InitializationException("Could not instantiate " + type, e);
+        }
+      } else {
+        var spec = CommandSpec.create().name(annotation.name());
+        spec.usageMessage().description(annotation.description());
+        subcommand = new CommandLine(spec);
+      }
+
+      commandLine.addSubcommand(annotation.name(), subcommand, annotation.aliases());
+    }
+
+    return commandLine;
+  }
+
+  private static Path toPath(Path workingDirectory, String value) {
+    var path = Paths.get(value);
+    if (path.equals(HYPHEN_PATH)) return path;
+    return workingDirectory.resolve(path);
   }
 
   @Override
   public void run() {
-    COMMAND_LINE.usage(System.out);
+    spec.commandLine().usage(spec.commandLine().getOut());
   }
 }
@@ -0,0 +1,165 @@
+package org.dacci.junk;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Records the content hash of the files a command has processed, along with a hash of the tool
+ * version and the options in effect, so that files processed the same way before can be skipped.
+ *
+ * <p>The entries are written sorted, and only when they have changed. Runs sharing the manifest
+ * lock it while saving, and merge their entries into those saved by the others.
+ */
+class Manifest {
+  private final Path file;
+  private final String command;
+  private final String configuration;
+  private final Map<String, String> entries = new ConcurrentHashMap<>();
+  private final Map<String, String> updates = new ConcurrentHashMap<>();
+
+  private Manifest(Path file, String command, String configuration) {
+    this.file = file;
+    this.command = command;
+    this.configuration = hash(toolVersion() + '\n' + configuration);
+  }
+
+  static Manifest load(Path file, String command, String configuration) throws IOException {
+    var manifest = new Manifest(file, command, configuration);
+
+    byte[] content;
+    // file locks are held on behalf of the whole process, and so cannot overlap in it
+    synchronized (Manifest.class) {
+      try (var channel = FileChannel.open(file, READ);
+          var lock = channel.lock(0, Long.MAX_VALUE, true)) {
+        content = read(channel);
+      } catch (NoSuchFileException e) {
+        return manifest;
+      }
+    }
+
+    parse(content).forEach((key, value) -> manifest.entries.put((String) key, (String) value));
+    return manifest;
+  }
+
+  private static byte[] read(FileChannel channel) throws IOException {
+    return Channels.newInputStream(channel.position(0)).readAllBytes();
+  }
+
+  private static Properties parse(byte[] content) throws IOException {
+    var properties = new Properties();
+    properties.load(new StringReader(new String(content, UTF_8)));
+    return properties;
+  }
+
+  private static byte[] format(Properties properties) throws IOException {
+    var writer = new StringWriter();
+    properties.store(writer, null);
+    // each entry is written on a line of its own, with the comment and # in keys escaped
+    return writer
+        .toString()
+        .lines()
+        .filter(line -> !line.startsWith("#"))
+        .sorted()
+        .collect(Collectors.joining("\n", "", "\n"))
+        .getBytes(UTF_8);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String encode(byte[] digest) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+  }
+
+  private static String hash(String value) {
+    return encode(newDigest().digest(value.getBytes(UTF_8)));
+  }
+
+  static String hash(Path file) throws IOException {
+    var digest = newDigest();
+    var buffer = new byte[65536];
+    try (var in = Files.newInputStream(file)) {
+      for (int count; (count = in.read(buffer)) != -1; ) digest.update(buffer, 0, count);
+    }
+    return encode(digest.digest());
+  }
+
+  private static String toolVersion() {
+    var version = String.valueOf(Manifest.class.getPackage().getImplementationVersion());
+    try {
+      var source = Manifest.class.getProtectionDomain().getCodeSource();
+      var location = Paths.get(source.getLocation().toURI());
+      if (Files.isRegularFile(location)) {
+        version +=
+            ":" + Files.size(location) + ":" + Files.getLastModifiedTime(location).toMillis();
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      // no code source to tell builds apart
+    }
+    return version;
+  }
+
+  private String key(Path input) {
+    return command + ' ' + input.toAbsolutePath().normalize();
+  }
+
+  boolean contains(Path input, String hash) {
+    return (configuration + ' ' + hash).equals(entries.get(key(input)));
+  }
+
+  void put(Path input, String hash) {
+    var key = key(input);
+    var value = configuration + ' ' + hash;
+    if (!value.equals(entries.put(key, value))) updates.put(key, value);
+  }
+
+  /** Merges the entries changed since loaded into the manifest on disk. */
+  void save() throws IOException {
+    if (updates.isEmpty()) return;
+
+    var saved = Map.copyOf(updates);
+    synchronized (Manifest.class) {
+      try (var channel = FileChannel.open(file, READ, WRITE, CREATE);
+          var lock = channel.lock()) {
+        var current = read(channel);
+        var properties = parse(current);
+        properties.putAll(saved);
+
+        var content = format(properties);
+        if (!Arrays.equals(content, current)) {
+          channel.truncate(0).position(0);
+          for (var buffer = ByteBuffer.wrap(content); buffer.hasRemaining(); ) {
+            channel.write(buffer);
+          }
+          channel.force(false);
+        }
+      }
+    }
+    saved.forEach(updates::remove);
+  }
+}
@@ -0,0 +1,141 @@
+package org.dacci.junk.daemon;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.dacci.junk.daemon.Protocol.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Forwards an invocation to a running {@link Daemon}. This class is loaded before anything else
+ * when the client is enabled, so it depends on nothing but the JDK.
+ */
+public class Client implements Closeable {
+  /** The environment variable naming the daemon file, which enables the client. */
+  public static final String FILE_ENV = "JUNK_DAEMON_FILE";
+
+  private final Socket socket;
+  private final String token;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  private Client(Socket socket, String token) throws IOException {
+    this.socket = socket;
+    this.token = token;
+
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  public static Client connect(Path file) throws IOException {
+    var properties = new Properties();
+    try (var reader = Files.newBufferedReader(file, UTF_8)) {
+      properties.load(reader);
+    }
+
+    int port;
+    try {
+      port = Integer.parseInt(properties.getProperty(PORT));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid daemon file: " + file, e);
+    }
+
+    return new Client(
+        new Socket(InetAddress.getLoopbackAddress(), port), properties.getProperty(TOKEN));
+  }
+
+  /** Executes the command in the daemon with the standard streams of this process. */
+  public int execute(String... args) {
+    try {
+      return execute(Paths.get("").toAbsolutePath(), System.in, System.out, System.err, args);
+    } catch (IOException e) {
+      System.err.println("Lost connection to the daemon: " + e);
+      return 1;
+    } finally {
+      try {
+        close();
+      } catch (IOException e) {
+        // already disconnected
+      }
+    }
+  }
+
+  public int execute(
+      Path workingDirectory,
+      InputStream stdin,
+      OutputStream stdout,
+      OutputStream stderr,
+      String... args)
+      throws IOException {
+    out.writeUTF(token);
+    out.writeByte(EXECUTE);
+    out.writeUTF(workingDirectory.toString());
+    out.writeInt(args.length);
+    for (var arg : args) out.writeUTF(arg);
+    out.flush();
+
+    var buffer = new byte[8192];
+    while (true) {
+      var frame = in.readByte();
+      switch (frame) {
+        case OUT:
+          copy(in.readInt(), buffer, stdout);
+          break;
+
+        case ERR:
+          copy(in.readInt(), buffer, stderr);
+          break;
+
+        case READ:
+          var length = stdin.read(buffer, 0, Math.min(in.readInt(), buffer.length));
+          out.writeInt(length);
+          if (length > 0) out.write(buffer, 0, length);
+          out.flush();
+          break;
+
+        case EXIT:
+          stdout.flush();
+          stderr.flush();
+          return in.readInt();
+
+        default:
+          throw new IOException("Unexpected frame: " + frame);
+      }
+    }
+  }
+
+  public void stop() throws IOException {
+    out.writeUTF(token);
+    out.writeByte(STOP);
+    out.flush();
+
+    if (in.readByte() != EXIT || in.readInt() != 0) throw new IOException("Failed to stop");
+  }
+
+  private void copy(int length, byte[] buffer, OutputStream to) throws IOException {
+    while (length > 0) {
+      var count = Math.min(length, buffer.length);
+      in.readFully(buffer, 0, count);
+      to.write(buffer, 0, count);
+      length -= count;
+    }
+    to.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+}
@@ -0,0 +1,294 @@
+package org.dacci.junk.daemon;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.dacci.junk.daemon.Protocol.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dacci.junk.Main;
+
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@Command(
+    name = "daemon",
+    description = {
+      "Serve commands from this process on a loopback socket.",
+      "Set " + Client.FILE_ENV + " to the daemon file to forward invocations to it."
+    })
+@Slf4j
+public class Daemon implements Runnable {
+  private static class Channel {
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    Channel(Socket socket) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    synchronized void write(byte frame, byte[] b, int off, int len) throws IOException {
+      out.writeByte(frame);
+      out.writeInt(len);
+      out.write(b, off, len);
+      out.flush();
+    }
+
+    synchronized int read(byte[] b, int off, int len) throws IOException {
+      out.writeByte(READ);
+      out.writeInt(len);
+      out.flush();
+
+      var count = in.readInt();
+      if (count > 0) in.readFully(b, off, count);
+      return count;
+    }
+
+    synchronized void exit(int status) throws IOException {
+      out.writeByte(EXIT);
+      out.writeInt(status);
+      out.flush();
+    }
+
+    PrintStream printStream(byte frame) {
+      var stream =
+          new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+              write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+              Channel.this.write(frame, b, off, len);
+            }
+          };
+      return new PrintStream(new BufferedOutputStream(stream), false);
+    }
+
+    InputStream inputStream() {
+      return new InputStream() {
+        @Override
+        public int read() throws IOException {
+          var b = new byte[1];
+          return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          if (len == 0) return 0;
+          return Channel.this.read(b, off, len);
+        }
+      };
+    }
+  }
+
+  /**
+   * Stands in for the standard streams of the daemon, writing to the error stream of the client on
+   * whose behalf the thread runs, so that the client sees the log of its command.
+   */
+  private static class Diagnostics extends OutputStream {
+    private final PrintStream fallback;
+
+    Diagnostics(PrintStream fallback) {
+      this.fallback = fallback;
+    }
+
+    private PrintStream target() {
+      var target = CLIENT_ERR.get();
+      return target == null ? fallback : target;
+    }
+
+    @Override
+    public void write(int b) {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      target().flush();
+    }
+  }
+
+  private static final AtomicBoolean LISTENING = new AtomicBoolean();
+
+  /** Inherited by the worker threads the command starts. */
+  private static final InheritableThreadLocal<PrintStream> CLIENT_ERR =
+      new InheritableThreadLocal<>();
+
+  private static final Path DEFAULT_FILE =
+      Paths.get(System.getProperty("user.home"), ".junk-daemon");
+
+  @Option(names = "--file", description = "file to publish the port and token to")
+  private Path file = DEFAULT_FILE;
+
+  @Option(names = "--stop", description = "stop the daemon instead")
+  private boolean stop;
+
+  private ServerSocket server;
+  private byte[] token;
+
+  private void publish(int port, String token) throws IOException {
+    var properties = new Properties();
+    properties.setProperty(PORT, Integer.toString(port));
+    properties.setProperty(TOKEN, token);
+
+    var temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.deleteIfExists(temp);
+    try {
+      Files.createFile(
+          temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } catch (UnsupportedOperationException e) {
+      Files.createFile(temp);
+    }
+
+    try (var writer = Files.newBufferedWriter(temp, UTF_8)) {
+      properties.store(writer, null);
+    }
+
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void serve(Socket socket) {
+    try (socket) {
+      var channel = new Channel(socket);
+      if (!MessageDigest.isEqual(token, channel.in.readUTF().getBytes(UTF_8))) {
+        var message = "Invalid token\n".getBytes(UTF_8);
+        channel.write(ERR, message, 0, message.length);
+        channel.exit(1);
+        return;
+      }
+
+      if (channel.in.readByte() == STOP) {
+        channel.exit(0);
+        server.close();
+        return;
+      }
+
+      var workingDirectory = Paths.get(channel.in.readUTF());
+      var args = new String[channel.in.readInt()];
+      for (var i = 0; i < args.length; ++i) args[i] = channel.in.readUTF();
+
+      var out = channel.printStream(OUT);
+      var err = channel.printStream(ERR);
+      int status;
+      CLIENT_ERR.set(err);
+      try {
+        status = Main.execute(workingDirectory, channel.inputStream(), out, err, args);
+      } finally {
+        CLIENT_ERR.remove();
+      }
+      out.flush();
+      err.flush();
+      channel.exit(status);
+    } catch (IOException e) {
+      log.warn("Connection failed", e);
+    }
+  }
+
+  private void listen() throws IOException {
+    var random = new byte[32];
+    new SecureRandom().nextBytes(random);
+    var encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    token = encoded.getBytes(UTF_8);
+
+    var cleanup = new Thread(this::unpublish);
+    var executor = Executors.newCachedThreadPool();
+    var stdout = System.out;
+    var stderr = System.err;
+    System.setOut(new PrintStream(new Diagnostics(stdout), true));
+    System.setErr(new PrintStream(new Diagnostics(stderr), true));
+    try (var server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      this.server = server;
+      publish(server.getLocalPort(), encoded);
+      Runtime.getRuntime().addShutdownHook(cleanup);
+      log.info("Listening on port {}", server.getLocalPort());
+
+      while (true) {
+        Socket socket;
+        try {
+          socket = server.accept();
+        } catch (IOException e) {
+          if (server.isClosed()) break;
+          throw e;
+        }
+
+        executor.execute(() -> serve(socket));
+      }
+    } finally {
+      // let the requests in progress, such as the one forwarding the stop, answer their clients
+      executor.shutdown();
+      try {
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      System.setOut(stdout);
+      System.setErr(stderr);
+      unpublish();
+      try {
+        Runtime.getRuntime().removeShutdownHook(cleanup);
+      } catch (IllegalStateException e) {
+        // shutting down
+      }
+    }
+  }
+
+  private void unpublish() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Failed to delete {}", file, e);
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      if (stop) {
+        try (var client = Client.connect(file)) {
+          client.stop();
+        }
+      } else if (LISTENING.compareAndSet(false, true)) {
+        try {
+          listen();
+        } finally {
+          LISTENING.set(false);
+        }
+      } else {
+        log.error("Already running as a daemon");
+      }
+    } catch (IOException e) {
+      log.error("Daemon failed", e);
+    }
+  }
+}
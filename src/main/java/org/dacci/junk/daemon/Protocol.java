@@ -0,0 +1,25 @@
+package org.dacci.junk.daemon;
+
+/**
+ * Constants of the protocol between {@link Client} and {@link Daemon}.
+ *
+ * <p>The client sends the token and a request. An execute request is followed by the working
+ * directory and the arguments. The daemon then sends frames until {@link #EXIT}, and the client
+ * answers each {@link #READ} with up to the requested number of bytes from its standard input,
+ * prefixed with the count, or -1 at the end of the input. A stop request is answered with {@link
+ * #EXIT} as well.
+ */
+final class Protocol {
+  static final byte EXECUTE = 1;
+  static final byte STOP = 2;
+
+  static final byte OUT = 1;
+  static final byte ERR = 2;
+  static final byte READ = 3;
+  static final byte EXIT = 4;
+
+  static final String PORT = "port";
+  static final String TOKEN = "token";
+
+  private Protocol() {}
+}
@@ -1,21 +1,32 @@
 package org.dacci.junk.json;
 
 import static java.nio.charset.StandardCharsets.*;
-import static java.nio.file.StandardOpenOption.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.BaseConstructor;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import org.dacci.junk.FileCommand;
+import org.dacci.junk.util.CloudFormationConstructor;
 import org.dacci.junk.util.CloudFormationModule;
-import org.dacci.junk.util.CloudFormationYaml;
+import org.dacci.junk.util.InputLimits;
 import org.dacci.junk.util.JsonStringifyPrettyPrinter;
+import org.dacci.junk.util.OutputBuffer;
+import org.dacci.junk.util.YamlToJsonTranscoder;
+import org.dacci.junk.util.YamlToJsonTranscoder.DocumentOutput;
 
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine.Command;
@@ -24,45 +35,238 @@ import picocli.CommandLine.Parameters;
 
 @Command(name = "from-yaml")
 @Slf4j
-public class FromYaml implements Runnable {
+public class FromYaml extends FileCommand {
   private static final ObjectMapper JSON =
       new ObjectMapper()
           .setDefaultPrettyPrinter(JsonStringifyPrettyPrinter.builder().build())
           .enable(SerializationFeature.INDENT_OUTPUT);
+  private static final ObjectMapper CFN_JSON =
+      JSON.copy().registerModule(CloudFormationModule.getInstance());
 
   @Option(names = "--cfn")
   private boolean cfn;
 
+  @Option(names = "--stream", description = "convert without loading the whole document")
+  private boolean stream;
+
+  @Option(
+      names = "--array-width",
+      paramLabel = "<width>",
+      description = "keep arrays of scalars on one line if it fits in the width")
+  private int arrayWidth;
+
+  @Option(
+      names = "--json-lines",
+      description = "write each document of a stream as a line of a .jsonl file")
+  private boolean jsonLines;
+
+  @Option(
+      names = "--split",
+      description = "write each document of a stream to a numbered file, like name-1.json")
+  private boolean split;
+
+  @Option(
+      names = "--max-expanded-bytes",
+      paramLabel = "<bytes>",
+      defaultValue = "67108864",
+      description =
+          "bytes allowed for the aliases of a document once expanded (default: ${DEFAULT-VALUE})")
+  private long maxExpandedBytes;
+
   @Parameters(arity = "1..")
   private List<Path> files;
 
-  private Yaml yaml;
+  private ObjectMapper json;
+  private JsonStringifyPrettyPrinter printer;
+  private InputLimits limits;
+  private ThreadLocal<BaseConstructor> constructor;
+  private ThreadLocal<YamlToJsonTranscoder> transcoder;
+
+  private static Path jsonPath(Path file) {
+    return jsonPath(file, ".json");
+  }
+
+  private static Path jsonPath(Path file, String suffix) {
+    var jsonName = FilenameUtils.removeExtension(file.getFileName().toString()) + suffix;
+    return file.resolveSibling(jsonName);
+  }
+
+  private static Path splitPath(Path file, int number) {
+    return jsonPath(file, "-" + number + ".json");
+  }
+
+  /** Creates a constructor that fails on duplicate keys, as the transcoder then does. */
+  private SafeConstructor newConstructor() {
+    var constructor = cfn ? new CloudFormationConstructor() : new Constructor();
+    constructor.setAllowDuplicateKeys(false);
+    return constructor;
+  }
+
+  /** Returns the constructor of the thread, set to load the documents of {@code reader}. */
+  private BaseConstructor constructor(Reader reader) {
+    var constructor = this.constructor.get();
+    constructor.setComposer(limits.composer(reader, maxExpandedBytes));
+    return constructor;
+  }
+
+  @Override
+  protected List<String> defaultIncludes() {
+    return List.of("**.yaml", "**.yml");
+  }
+
+  @Override
+  protected Path outputFile(Path file) {
+    if (jsonLines) return jsonPath(file, ".jsonl");
+    if (split) return splitPath(file, 1);
+    return jsonPath(file);
+  }
+
+  @Override
+  protected boolean processFile(Path file) {
+    if (jsonLines) {
+      return writeLines(file);
+    } else if (split) {
+      return writeSplit(file);
+    } else if (stream) {
+      return transcodeFile(file);
+    } else {
+      return loadFile(file);
+    }
+  }
+
+  private boolean transcodeFile(Path file) {
+    try (var reader = Files.newBufferedReader(file, UTF_8)) {
+      writeOutput(
+          jsonPath(file),
+          out -> {
+            var generator = createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            transcoder.get().transcode(reader, generator);
+          });
+    } catch (Exception e) {
+      log.error("Failed to convert", e);
+      return false;
+    }
 
-  private void processFile(Path file) {
+    return true;
+  }
+
+  private boolean loadFile(Path file) {
     Object value;
     try (var reader = Files.newBufferedReader(file, UTF_8)) {
-      value = yaml.load(reader);
+      value = constructor(reader).getSingleData(Object.class);
     } catch (Exception e) {
       log.error("Failed to load", e);
-      return;
+      return false;
     }
 
-    var jsonName = FilenameUtils.removeExtension(file.getFileName().toString()) + ".json";
-
-    try (var writer =
-        Files.newBufferedWriter(file.resolveSibling(jsonName), UTF_8, CREATE, TRUNCATE_EXISTING)) {
-      JSON.writeValue(writer, value);
+    try {
+      var buffer = outputBuffer();
+      try (var generator = createGenerator(buffer)) {
+        json.writeValue(generator, value);
+      }
+      writeOutput(buffer, jsonPath(file));
     } catch (Exception e) {
       log.error("Failed to save", e);
+      return false;
+    }
+
+    return true;
+  }
+
+  private JsonGenerator createGenerator(OutputStream out) throws IOException {
+    return printer.compactArrays(json.writer().createGenerator(out));
+  }
+
+  private void convertAll(Reader reader, DocumentOutput output) throws IOException {
+    if (stream) {
+      transcoder.get().transcodeAll(reader, output);
       return;
     }
+
+    for (var constructor = constructor(reader); constructor.checkData(); ) {
+      var generator = output.begin();
+      json.writeValue(generator, constructor.getData());
+      output.end(generator);
+    }
+  }
+
+  private boolean writeLines(Path file) {
+    try (var reader = Files.newBufferedReader(file, UTF_8)) {
+      writeOutput(
+          jsonPath(file, ".jsonl"),
+          out -> {
+            var generator = json.getFactory().createGenerator(out);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            convertAll(
+                reader,
+                new DocumentOutput() {
+                  @Override
+                  public JsonGenerator begin() {
+                    return generator;
+                  }
+
+                  @Override
+                  public void end(JsonGenerator generator) throws IOException {
+                    generator.writeRaw('\n');
+                  }
+                });
+            generator.flush();
+          });
+    } catch (Exception e) {
+      log.error("Failed to convert", e);
+      return false;
+    }
+
+    return true;
+  }
+
+  private boolean writeSplit(Path file) {
+    var count = new int[1];
+    try (var reader = Files.newBufferedReader(file, UTF_8)) {
+      convertAll(
+          reader,
+          new DocumentOutput() {
+            private OutputBuffer buffer;
+
+            @Override
+            public JsonGenerator begin() throws IOException {
+              buffer = outputBuffer();
+              return createGenerator(buffer);
+            }
+
+            @Override
+            public void end(JsonGenerator generator) throws IOException {
+              generator.close();
+              writeOutput(buffer, splitPath(file, ++count[0]));
+            }
+          });
+
+      // remove the files left by a longer stream
+      for (var number = count[0] + 1; deleteOutput(splitPath(file, number)); ++number) {}
+    } catch (Exception e) {
+      log.error("Failed to convert", e);
+      return false;
+    }
+
+    return true;
   }
 
   @Override
   public void run() {
-    yaml = cfn ? new CloudFormationYaml() : new Yaml();
-    if (cfn) JSON.registerModule(CloudFormationModule.getInstance());
+    json = cfn ? CFN_JSON : JSON;
+    printer = JsonStringifyPrettyPrinter.builder().arrayWidth(arrayWidth).build();
+    limits = inputLimits();
+    constructor = ThreadLocal.withInitial(this::newConstructor);
+    transcoder =
+        ThreadLocal.withInitial(
+            () -> {
+              var transcoder = new YamlToJsonTranscoder(newConstructor(), json);
+              transcoder.setLimits(limits);
+              transcoder.setMaxExpandedBytes(maxExpandedBytes);
+              return transcoder;
+            });
 
-    files.parallelStream().forEach(this::processFile);
+    processFiles(files);
   }
 }
@@ -1,10 +1,10 @@
 package org.dacci.junk.json;
 
 import org.dacci.junk.Main.CommandGroup;
+import org.dacci.junk.Main.LazySubcommands;
 
 import picocli.CommandLine.Command;
 
-@Command(
-    name = "json",
-    subcommands = {SortConfig.class, FromYaml.class})
+@Command(name = "json")
+@LazySubcommands({SortConfig.class, FromYaml.class})
 public class JsonCommands implements CommandGroup {}
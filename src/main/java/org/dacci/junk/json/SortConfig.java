@@ -3,16 +3,23 @@ package org.dacci.junk.json;
 import static java.nio.charset.StandardCharsets.*;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+import org.dacci.junk.FileCommand;
+import org.dacci.junk.util.InputLimits;
+import org.dacci.junk.util.JsonInput;
 import org.dacci.junk.util.JsonStringifyPrettyPrinter;
 
 import lombok.extern.slf4j.Slf4j;
@@ -21,19 +28,12 @@ import picocli.CommandLine.Parameters;
 
 @Command(name = "sort-config")
 @Slf4j
-public class SortConfig implements Runnable {
-  public static class Config extends TreeMap<String, Object> {
-    public Config() {
-      super(SortConfig::keyComparator);
-    }
-  }
-
+public class SortConfig extends FileCommand {
   private static final ObjectMapper JSON =
       new ObjectMapper()
           .setDefaultPrettyPrinter(
               JsonStringifyPrettyPrinter.builder().lineSeparator("\n").indent("    ").build())
-          .enable(SerializationFeature.INDENT_OUTPUT)
-          .registerModule(new SimpleModule().addAbstractTypeMapping(Map.class, TreeMap.class));
+          .enable(SerializationFeature.INDENT_OUTPUT);
 
   private static int keyComparator(String a, String b) {
     if (a == b) return 0;
@@ -45,28 +45,96 @@ public class SortConfig implements Runnable {
     return aa == bb ? a.compareTo(b) : aa ? 1 : -1;
   }
 
-  private static void process(Path file) {
-    Config config;
-    try (var reader = Files.newBufferedReader(file, UTF_8)) {
-      config = JSON.readValue(reader, Config.class);
+  @Override
+  protected List<String> defaultIncludes() {
+    return List.of("**.json");
+  }
+
+  /**
+   * Copies the value at the current token, with the members of each object sorted. The members of
+   * an object are buffered as tokens until the object ends, so that no map or boxed value is built,
+   * and numbers are copied as their text so that they keep their formatting. The root object is
+   * sorted by {@link #keyComparator}, and the nested ones in natural order. The last of duplicate
+   * members wins.
+   */
+  private static void copySorted(JsonParser parser, JsonGenerator generator, boolean root)
+      throws IOException {
+    switch (parser.currentToken()) {
+      case START_OBJECT:
+        Map<String, TokenBuffer> members =
+            new TreeMap<>(root ? SortConfig::keyComparator : Comparator.naturalOrder());
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          var name = parser.getCurrentName();
+          parser.nextToken();
+
+          var member = new TokenBuffer(parser);
+          copySorted(parser, member, false);
+          members.put(name, member);
+        }
+
+        generator.writeStartObject();
+        for (var member : members.entrySet()) {
+          generator.writeFieldName(member.getKey());
+          member.getValue().serialize(generator);
+        }
+        generator.writeEndObject();
+        break;
+
+      case START_ARRAY:
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) copySorted(parser, generator, false);
+        generator.writeEndArray();
+        break;
+
+      case VALUE_STRING:
+        generator.writeString(
+            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        break;
+
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        generator.writeNumber(parser.getText());
+        break;
+
+      default:
+        generator.copyCurrentEvent(parser);
+        break;
+    }
+  }
+
+  @Override
+  protected boolean processFile(Path file) {
+    var buffer = outputBuffer();
+    try (var parser = limits.parser(JsonInput.createParser(JSON.getFactory(), file, UTF_8));
+        var generator = JSON.writer().createGenerator(buffer)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "expected an object");
+      }
+
+      copySorted(parser, generator, true);
     } catch (IOException e) {
-      log.error("Failed to load", e);
-      return;
+      log.error("Failed to sort", e);
+      return false;
     }
 
-    try (var writer = Files.newBufferedWriter(file, UTF_8)) {
-      JSON.writeValue(writer, config);
+    try {
+      writeOutput(buffer, file);
     } catch (IOException e) {
       log.error("Failed to save", e);
-      return;
+      return false;
     }
+
+    return true;
   }
 
   @Parameters(arity = "1..")
   private List<Path> files;
 
+  private InputLimits limits;
+
   @Override
   public void run() {
-    files.parallelStream().forEach(SortConfig::process);
+    limits = inputLimits();
+    processFiles(files);
   }
 }
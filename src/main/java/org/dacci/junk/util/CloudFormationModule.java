@@ -1,319 +1,161 @@
 package org.dacci.junk.util;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.UntypedObjectDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
-import org.dacci.junk.util.cfn.Base64;
-import org.dacci.junk.util.cfn.Cidr;
-import org.dacci.junk.util.cfn.Condition;
-import org.dacci.junk.util.cfn.Conditional;
-import org.dacci.junk.util.cfn.FindInMap;
-import org.dacci.junk.util.cfn.GetAZs;
-import org.dacci.junk.util.cfn.GetAtt;
-import org.dacci.junk.util.cfn.ImportValue;
-import org.dacci.junk.util.cfn.Join;
-import org.dacci.junk.util.cfn.Ref;
-import org.dacci.junk.util.cfn.Select;
-import org.dacci.junk.util.cfn.Split;
-import org.dacci.junk.util.cfn.Sub;
-import org.dacci.junk.util.cfn.Transform;
+import org.dacci.junk.util.cfn.Intrinsic;
+import org.dacci.junk.util.cfn.Intrinsics;
 
 @SuppressWarnings("serial")
 public class CloudFormationModule extends SimpleModule {
-  private static class Base64Serializer extends StdSerializer<Base64> {
-    public Base64Serializer() {
-      this(null);
-    }
+  private static class IntrinsicSerializer<T> extends StdSerializer<T> {
+    private final Intrinsic<T> intrinsic;
+    private final SerializableString name;
 
-    public Base64Serializer(Class<Base64> t) {
-      super(t);
+    public IntrinsicSerializer(Intrinsic<T> intrinsic) {
+      super(intrinsic.getType());
+      this.intrinsic = intrinsic;
+      this.name = new SerializedString(intrinsic.getName());
     }
 
     @Override
-    public void serialize(Base64 value, JsonGenerator gen, SerializerProvider provider)
+    public void serialize(T value, JsonGenerator gen, SerializerProvider provider)
         throws IOException {
       gen.writeStartObject();
-      gen.writeObjectField("Fn::Base64", value.getValue());
+      gen.writeFieldName(name);
+      gen.writeObject(intrinsic.argument(value));
       gen.writeEndObject();
     }
   }
 
-  private static class CidrSerializer extends StdSerializer<Cidr> {
-    public CidrSerializer() {
-      this(null);
-    }
-
-    public CidrSerializer(Class<Cidr> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(Cidr value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::Cidr");
-      gen.writeObject(value.getIpBlock());
-      gen.writeNumber(value.getCount());
-      gen.writeNumber(value.getCidrBits());
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
+  private static class IntrinsicDeserializer<T> extends StdDeserializer<T> {
+    private final Intrinsic<T> intrinsic;
 
-  private static class ConditionalSerializer extends StdSerializer<Conditional> {
-    public ConditionalSerializer() {
-      this(null);
+    public IntrinsicDeserializer(Intrinsic<T> intrinsic) {
+      super(intrinsic.getType());
+      this.intrinsic = intrinsic;
     }
 
-    public ConditionalSerializer(Class<Conditional> t) {
-      super(t);
+    public String getName() {
+      return intrinsic.getName();
     }
 
     @Override
-    public void serialize(Conditional value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::" + value.getClass().getSimpleName());
-
-      for (var condition : value.getConditions()) {
-        gen.writeObject(condition);
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      var name = getName();
+      if (p.isExpectedStartObjectToken()) p.nextToken();
+      if (!p.hasToken(JsonToken.FIELD_NAME) || !name.equals(p.getCurrentName())) {
+        return ctxt.reportInputMismatch(this, "Expected %s", name);
       }
 
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
-
-  private static class FindInMapSerializer extends StdSerializer<FindInMap> {
-    public FindInMapSerializer() {
-      this(null);
-    }
-
-    public FindInMapSerializer(Class<FindInMap> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(FindInMap value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::FindInMap");
-      gen.writeObject(value.getMapName());
-      gen.writeObject(value.getTopLevelKey());
-      gen.writeObject(value.getSecondLevelKey());
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
-
-  private static class GetAttSerializer extends StdSerializer<GetAtt> {
-    public GetAttSerializer() {
-      this(null);
-    }
-
-    public GetAttSerializer(Class<GetAtt> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(GetAtt value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::GetAtt");
-      gen.writeObject(value.getResource());
-      gen.writeObject(value.getAttribute());
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
-
-  private static class GetAZsSerializer extends StdSerializer<GetAZs> {
-    public GetAZsSerializer() {
-      this(null);
-    }
-
-    public GetAZsSerializer(Class<GetAZs> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(GetAZs value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeObjectField("Fn::GetAZs", value.getRegion());
-      gen.writeEndObject();
-    }
-  }
-
-  private static class ImportValueSerializer extends StdSerializer<ImportValue> {
-    public ImportValueSerializer() {
-      this(null);
-    }
-
-    public ImportValueSerializer(Class<ImportValue> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(ImportValue value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeObjectField("Fn::ImportValue", value.getReference());
-      gen.writeEndObject();
-    }
-  }
+      p.nextToken();
+      var value = construct(p, ctxt);
 
-  private static class JoinSerializer extends StdSerializer<Join> {
-    public JoinSerializer() {
-      this(null);
-    }
+      if (p.nextToken() != JsonToken.END_OBJECT) {
+        ctxt.reportWrongTokenException(this, JsonToken.END_OBJECT, "Unexpected entry in %s", name);
+      }
 
-    public JoinSerializer(Class<Join> t) {
-      super(t);
+      return value;
     }
 
-    @Override
-    public void serialize(Join value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::Join");
-      gen.writeObject(value.getDelimiter());
-      gen.writeObject(value.getValues());
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
+    /** Constructs the value from the argument of the function, the current token of {@code p}. */
+    public T construct(JsonParser p, DeserializationContext ctxt) throws IOException {
+      Object argument;
+      if (p.isExpectedStartArrayToken()) {
+        argument = sequence(p, ctxt);
+      } else if (p.isExpectedStartObjectToken()) {
+        argument = mapping(p, ctxt);
+      } else if (p.currentToken().isScalarValue()) {
+        argument = p.getText();
+      } else {
+        return ctxt.reportInputMismatch(this, "Unexpected node: %s", p.currentToken());
+      }
 
-  private static class SelectSerializer extends StdSerializer<Select> {
-    public SelectSerializer() {
-      this(null);
+      try {
+        return intrinsic.construct(argument);
+      } catch (IllegalArgumentException e) {
+        return ctxt.reportInputMismatch(this, "%s", e.getMessage());
+      }
     }
 
-    public SelectSerializer(Class<Select> t) {
-      super(t);
+    private List<Object> sequence(JsonParser p, DeserializationContext ctxt) throws IOException {
+      var sequence = new ArrayList<>();
+      while (p.nextToken() != JsonToken.END_ARRAY) sequence.add(ctxt.readValue(p, Object.class));
+      return sequence;
     }
 
-    @Override
-    public void serialize(Select value, JsonGenerator gen, SerializerProvider provider)
+    private Map<Object, Object> mapping(JsonParser p, DeserializationContext ctxt)
         throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::Select");
-      gen.writeNumber(value.getIndex());
-      gen.writeObject(value.getSelection());
-      gen.writeEndArray();
-      gen.writeEndObject();
+      var mapping = new LinkedHashMap<>();
+      for (var key = p.nextFieldName(); key != null; key = p.nextFieldName()) {
+        p.nextToken();
+        mapping.put(key, ctxt.readValue(p, Object.class));
+      }
+      return mapping;
     }
   }
 
-  private static class SplitSerializer extends StdSerializer<Split> {
-    public SplitSerializer() {
-      this(null);
-    }
+  /**
+   * Deserializes untyped values, constructing intrinsic functions from single-entry objects keyed
+   * by their names. The argument is buffered until the object turns out to have no other entry.
+   */
+  private static class IntrinsicObjectDeserializer extends UntypedObjectDeserializer {
+    private final Map<String, IntrinsicDeserializer<?>> intrinsics;
 
-    public SplitSerializer(Class<Split> t) {
-      super(t);
+    public IntrinsicObjectDeserializer(Map<String, IntrinsicDeserializer<?>> intrinsics) {
+      super(null, null);
+      this.intrinsics = intrinsics;
     }
 
     @Override
-    public void serialize(Split value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeArrayFieldStart("Fn::Split");
-      gen.writeObject(value.getDelimiter());
-      gen.writeObject(value.getSource());
-      gen.writeEndArray();
-      gen.writeEndObject();
-    }
-  }
-
-  private static class SubSerializer extends StdSerializer<Sub> {
-    public SubSerializer() {
-      this(null);
-    }
-
-    public SubSerializer(Class<Sub> t) {
-      super(t);
+    public JsonDeserializer<?> createContextual(
+        DeserializationContext ctxt, BeanProperty property) {
+      return this;
     }
 
     @Override
-    public void serialize(Sub value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      var hasVariables = value.getVariables() != null && !value.getVariables().isEmpty();
-
-      gen.writeStartObject();
-      gen.writeFieldName("Fn::Sub");
+    protected Object mapObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+      if (p.isExpectedStartObjectToken()) p.nextToken();
 
-      if (hasVariables) gen.writeStartArray();
+      IntrinsicDeserializer<?> intrinsic = null;
+      if (p.hasToken(JsonToken.FIELD_NAME)) intrinsic = intrinsics.get(p.getCurrentName());
+      if (intrinsic == null) return super.mapObject(p, ctxt);
 
-      gen.writeObject(value.getTemplate());
+      p.nextToken();
+      var argument = new TokenBuffer(p, ctxt);
+      argument.copyCurrentStructure(p);
 
-      if (hasVariables) {
-        gen.writeObject(value.getVariables());
-        gen.writeEndArray();
+      if (p.nextToken() == JsonToken.END_OBJECT) {
+        return intrinsic.construct(argument.asParserOnFirstToken(), ctxt);
       }
 
-      gen.writeEndObject();
-    }
-  }
-
-  private static class TransformSerializer extends StdSerializer<Transform> {
-    public TransformSerializer() {
-      this(null);
-    }
-
-    public TransformSerializer(Class<Transform> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(Transform value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeObjectFieldStart("Fn::Transform");
-      gen.writeObjectField("Name", value.getName());
-      gen.writeObjectField("Parameters", value.getParameters());
-      gen.writeEndObject();
-      gen.writeEndObject();
-    }
-  }
-
-  private static class RefSerializer extends StdSerializer<Ref> {
-    public RefSerializer() {
-      this(null);
-    }
-
-    public RefSerializer(Class<Ref> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(Ref value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeObjectField("Ref", value.getReference());
-      gen.writeEndObject();
-    }
-  }
-
-  private static class ConditionSerializer extends StdSerializer<Condition> {
-    public ConditionSerializer() {
-      this(null);
-    }
-
-    public ConditionSerializer(Class<Condition> t) {
-      super(t);
-    }
-
-    @Override
-    public void serialize(Condition value, JsonGenerator gen, SerializerProvider provider)
-        throws IOException {
-      gen.writeStartObject();
-      gen.writeObjectField("Condition", value.getCondition());
-      gen.writeEndObject();
+      var mapping = new LinkedHashMap<String, Object>();
+      mapping.put(intrinsic.getName(), deserialize(argument.asParserOnFirstToken(), ctxt));
+      for (; p.hasToken(JsonToken.FIELD_NAME); p.nextToken()) {
+        var key = p.getCurrentName();
+        p.nextToken();
+        mapping.put(key, deserialize(p, ctxt));
+      }
+      return mapping;
     }
   }
 
@@ -325,20 +167,18 @@ public class CloudFormationModule extends SimpleModule {
     return Holder.INSTANCE;
   }
 
+  private final Map<String, IntrinsicDeserializer<?>> intrinsics = new HashMap<>();
+
   private CloudFormationModule() {
-    addSerializer(Base64.class, new Base64Serializer());
-    addSerializer(Cidr.class, new CidrSerializer());
-    addSerializer(Conditional.class, new ConditionalSerializer());
-    addSerializer(FindInMap.class, new FindInMapSerializer());
-    addSerializer(GetAtt.class, new GetAttSerializer());
-    addSerializer(GetAZs.class, new GetAZsSerializer());
-    addSerializer(ImportValue.class, new ImportValueSerializer());
-    addSerializer(Join.class, new JoinSerializer());
-    addSerializer(Select.class, new SelectSerializer());
-    addSerializer(Split.class, new SplitSerializer());
-    addSerializer(Sub.class, new SubSerializer());
-    addSerializer(Transform.class, new TransformSerializer());
-    addSerializer(Ref.class, new RefSerializer());
-    addSerializer(Condition.class, new ConditionSerializer());
+    for (var intrinsic : Intrinsics.getInstance().getAll()) addIntrinsic(intrinsic);
+
+    addDeserializer(Object.class, new IntrinsicObjectDeserializer(intrinsics));
+  }
+
+  private <T> void addIntrinsic(Intrinsic<T> intrinsic) {
+    var deserializer = new IntrinsicDeserializer<>(intrinsic);
+    addSerializer(intrinsic.getType(), new IntrinsicSerializer<>(intrinsic));
+    addDeserializer(intrinsic.getType(), deserializer);
+    intrinsics.put(intrinsic.getName(), deserializer);
   }
 }
@@ -0,0 +1,323 @@
+package org.dacci.junk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+
+/**
+ * Holds back the scalars of an array until the array ends, and then writes the array on one line if
+ * it fits in the width. The array is written the usual way as soon as it turns out to contain a
+ * container or not to fit. Values written through the codec come back to this generator, since
+ * methods are not delegated as a whole.
+ */
+class CompactArrayGenerator extends JsonGeneratorDelegate {
+  private final int indentWidth;
+  private final int width;
+
+  private int depth;
+  private String fieldName;
+  private List<String> items;
+  private Object arrayValue;
+  private int length;
+
+  CompactArrayGenerator(JsonGenerator delegate, int indentWidth, int width) {
+    super(delegate, false);
+    this.indentWidth = indentWidth;
+    this.width = width;
+  }
+
+  private static String quote(String value) {
+    return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + '"';
+  }
+
+  private String format(BigDecimal value) {
+    return isEnabled(Feature.WRITE_BIGDECIMAL_AS_PLAIN) ? value.toPlainString() : value.toString();
+  }
+
+  private void startArray(Object forValue) throws IOException {
+    expand();
+
+    var column = depth * indentWidth;
+    if (fieldName != null) column += quote(fieldName).length() + 2;
+    fieldName = null;
+
+    items = new ArrayList<>();
+    arrayValue = forValue;
+    length = column + 2;
+  }
+
+  /** Writes the array held back the usual way. */
+  private void expand() throws IOException {
+    if (items == null) return;
+
+    var pending = items;
+    items = null;
+    delegate.writeStartArray(arrayValue);
+    ++depth;
+    for (var item : pending) delegate.writeRawValue(item);
+  }
+
+  /**
+   * Holds back {@code item} if the array still fits, or returns {@code false} to write it. A {@code
+   * null} item cannot be written on one line.
+   */
+  private boolean hold(String item) throws IOException {
+    if (item == null) {
+      expand();
+      return false;
+    }
+
+    length += item.length() + (items.isEmpty() ? 0 : 2);
+    if (length > width) {
+      expand();
+      return false;
+    }
+
+    items.add(item);
+    return true;
+  }
+
+  @Override
+  public void writeStartArray() throws IOException {
+    startArray(null);
+  }
+
+  @Override
+  public void writeStartArray(int size) throws IOException {
+    startArray(null);
+  }
+
+  @Override
+  public void writeStartArray(Object forValue) throws IOException {
+    startArray(forValue);
+  }
+
+  @Override
+  public void writeStartArray(Object forValue, int size) throws IOException {
+    startArray(forValue);
+  }
+
+  @Override
+  public void writeEndArray() throws IOException {
+    if (items != null) {
+      var line = "[" + String.join(", ", items) + "]";
+      items = null;
+      fieldName = null;
+      delegate.writeRawValue(line);
+      return;
+    }
+
+    --depth;
+    fieldName = null;
+    delegate.writeEndArray();
+  }
+
+  @Override
+  public void writeStartObject() throws IOException {
+    expand();
+    ++depth;
+    delegate.writeStartObject();
+  }
+
+  @Override
+  public void writeStartObject(Object forValue) throws IOException {
+    expand();
+    ++depth;
+    delegate.writeStartObject(forValue);
+  }
+
+  @Override
+  public void writeStartObject(Object forValue, int size) throws IOException {
+    expand();
+    ++depth;
+    delegate.writeStartObject(forValue, size);
+  }
+
+  @Override
+  public void writeEndObject() throws IOException {
+    --depth;
+    fieldName = null;
+    delegate.writeEndObject();
+  }
+
+  @Override
+  public void writeFieldName(String name) throws IOException {
+    fieldName = name;
+    delegate.writeFieldName(name);
+  }
+
+  @Override
+  public void writeFieldName(SerializableString name) throws IOException {
+    fieldName = name.getValue();
+    delegate.writeFieldName(name);
+  }
+
+  @Override
+  public void writeArray(int[] array, int offset, int length) throws IOException {
+    expand();
+    delegate.writeArray(array, offset, length);
+  }
+
+  @Override
+  public void writeArray(long[] array, int offset, int length) throws IOException {
+    expand();
+    delegate.writeArray(array, offset, length);
+  }
+
+  @Override
+  public void writeArray(double[] array, int offset, int length) throws IOException {
+    expand();
+    delegate.writeArray(array, offset, length);
+  }
+
+  @Override
+  public void writeArray(String[] array, int offset, int length) throws IOException {
+    expand();
+    delegate.writeArray(array, offset, length);
+  }
+
+  @Override
+  public void writeString(String text) throws IOException {
+    if (items == null || !hold(quote(text))) delegate.writeString(text);
+  }
+
+  @Override
+  public void writeString(char[] text, int offset, int len) throws IOException {
+    if (items == null || !hold(quote(new String(text, offset, len))))
+      delegate.writeString(text, offset, len);
+  }
+
+  @Override
+  public void writeString(SerializableString text) throws IOException {
+    if (items == null || !hold(quote(text.getValue()))) delegate.writeString(text);
+  }
+
+  @Override
+  public void writeString(Reader reader, int len) throws IOException {
+    expand();
+    delegate.writeString(reader, len);
+  }
+
+  @Override
+  public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+    expand();
+    delegate.writeRawUTF8String(text, offset, length);
+  }
+
+  @Override
+  public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+    expand();
+    delegate.writeUTF8String(text, offset, length);
+  }
+
+  @Override
+  public void writeRawValue(String text) throws IOException {
+    expand();
+    delegate.writeRawValue(text);
+  }
+
+  @Override
+  public void writeRawValue(String text, int offset, int len) throws IOException {
+    expand();
+    delegate.writeRawValue(text, offset, len);
+  }
+
+  @Override
+  public void writeRawValue(char[] text, int offset, int len) throws IOException {
+    expand();
+    delegate.writeRawValue(text, offset, len);
+  }
+
+  @Override
+  public void writeBinary(Base64Variant b64variant, byte[] data, int offset, int len)
+      throws IOException {
+    expand();
+    delegate.writeBinary(b64variant, data, offset, len);
+  }
+
+  @Override
+  public int writeBinary(Base64Variant b64variant, InputStream data, int dataLength)
+      throws IOException {
+    expand();
+    return delegate.writeBinary(b64variant, data, dataLength);
+  }
+
+  @Override
+  public void writeNumber(short v) throws IOException {
+    if (items == null || !hold(Short.toString(v))) delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(int v) throws IOException {
+    if (items == null || !hold(Integer.toString(v))) delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(long v) throws IOException {
+    if (items == null || !hold(Long.toString(v))) delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(BigInteger v) throws IOException {
+    if (items == null || !hold(v == null ? "null" : v.toString())) delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(double v) throws IOException {
+    if (items == null || !hold(Double.isFinite(v) ? Double.toString(v) : null))
+      delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(float v) throws IOException {
+    if (items == null || !hold(Float.isFinite(v) ? Float.toString(v) : null))
+      delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(BigDecimal v) throws IOException {
+    if (items == null || !hold(v == null ? "null" : format(v))) delegate.writeNumber(v);
+  }
+
+  @Override
+  public void writeNumber(String encodedValue) throws IOException {
+    if (items == null || !hold(encodedValue)) delegate.writeNumber(encodedValue);
+  }
+
+  @Override
+  public void writeBoolean(boolean state) throws IOException {
+    if (items == null || !hold(Boolean.toString(state))) delegate.writeBoolean(state);
+  }
+
+  @Override
+  public void writeNull() throws IOException {
+    if (items == null || !hold("null")) delegate.writeNull();
+  }
+
+  @Override
+  public void writeEmbeddedObject(Object object) throws IOException {
+    expand();
+    delegate.writeEmbeddedObject(object);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (items == null) delegate.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    expand();
+    delegate.close();
+  }
+}
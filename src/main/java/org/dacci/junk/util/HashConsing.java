@@ -0,0 +1,186 @@
+package org.dacci.junk.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.dacci.junk.util.cfn.Intrinsic;
+import org.dacci.junk.util.cfn.Intrinsics;
+
+/**
+ * Makes the structurally equal subtrees of a document share one instance. The representer
+ * represents an instance once, so the serializer then writes the first occurrence of a repeated
+ * subtree with an anchor, and the others as aliases to it.
+ *
+ * <p>Subtrees are hashed bottom-up, and compared by the identity of their canonical children, so
+ * that the document is visited once. Maps are compared in order of their entries. Maps and lists
+ * are updated in place, and intrinsic functions are reconstructed from their shared arguments.
+ * Subtrees of fewer values than the minimum size are left alone, since an alias would hardly be
+ * shorter.
+ */
+public class HashConsing {
+  /**
+   * A subtree as a key of the table, made of its map keys and its canonical children. Canonical
+   * maps and lists are equal only if identical, so a subtree is compared without descending.
+   */
+  private static class Shape {
+    private final Object type;
+    private final Object[] parts;
+    private final int hash;
+
+    Shape(Object type, Object[] parts, int hash) {
+      this.type = type;
+      this.parts = parts;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Shape)) return false;
+
+      var other = (Shape) obj;
+      if (hash != other.hash || type != other.type || parts.length != other.parts.length) {
+        return false;
+      }
+
+      for (var i = 0; i < parts.length; ++i) {
+        var a = parts[i];
+        var b = other.parts[i];
+        if (a == b) continue;
+        if (a instanceof Map || a instanceof List || !Objects.equals(a, b)) return false;
+      }
+
+      return true;
+    }
+  }
+
+  /** The result of visiting a subtree: its canonical instance, structural hash and size. */
+  private static class Visit {
+    private final Object canonical;
+    private final int hash;
+    private final int size;
+
+    Visit(Object canonical, int hash, int size) {
+      this.canonical = canonical;
+      this.hash = hash;
+      this.size = size;
+    }
+  }
+
+  private final int minSize;
+  private final Intrinsics intrinsics = Intrinsics.getInstance();
+  private final Map<Shape, Object> canonicals = new HashMap<>();
+
+  /** @param minSize the number of values in the smallest subtree to share */
+  public HashConsing(int minSize) {
+    this.minSize = minSize;
+  }
+
+  /** Returns {@code document} with its repeated subtrees shared. */
+  public Object share(Object document) {
+    try {
+      return replacement(document, visit(document));
+    } finally {
+      canonicals.clear();
+    }
+  }
+
+  private Object replacement(Object value, Visit visit) {
+    return visit.size < minSize ? value : visit.canonical;
+  }
+
+  private Visit visit(Object value) {
+    if (value instanceof Map) {
+      return visitMap((Map<?, ?>) value);
+    } else if (value instanceof List) {
+      return visitList((List<?>) value);
+    } else if (value != null) {
+      var intrinsic = intrinsics.get(value.getClass());
+      if (intrinsic != null) return visitIntrinsic(intrinsic, value);
+    }
+
+    return new Visit(value, Objects.hashCode(value), 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Visit visitMap(Map<?, ?> map) {
+    var parts = new Object[map.size() * 2];
+    var hash = Map.class.hashCode();
+    var size = 1;
+    var i = 0;
+    for (var entry : ((Map<Object, Object>) map).entrySet()) {
+      var visit = visit(entry.getValue());
+      var replacement = replacement(entry.getValue(), visit);
+      if (replacement != entry.getValue()) entry.setValue(replacement);
+
+      parts[i++] = entry.getKey();
+      parts[i++] = visit.canonical;
+      hash = (hash * 31 + Objects.hashCode(entry.getKey())) * 31 + visit.hash;
+      size += visit.size;
+    }
+
+    return intern(new Shape(Map.class, parts, hash), map, size);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Visit visitList(List<?> list) {
+    var parts = new Object[list.size()];
+    var hash = List.class.hashCode();
+    var size = 1;
+    for (var i = 0; i < parts.length; ++i) {
+      var value = list.get(i);
+      var visit = visit(value);
+      var replacement = replacement(value, visit);
+      if (replacement != value) ((List<Object>) list).set(i, replacement);
+
+      parts[i] = visit.canonical;
+      hash = hash * 31 + visit.hash;
+      size += visit.size;
+    }
+
+    return intern(new Shape(List.class, parts, hash), list, size);
+  }
+
+  /**
+   * Visits the argument of the function, and reconstructs the function from the shared argument the
+   * first time the shape is seen. Functions of a scalar, such as references, are left as they are.
+   */
+  private Visit visitIntrinsic(Intrinsic<?> intrinsic, Object value) {
+    var argument = intrinsic.argument(value);
+    if (argument instanceof Map) {
+      // visit a copy, since the argument may be a view of the value
+      argument = new LinkedHashMap<>((Map<?, ?>) argument);
+    } else if (argument instanceof List) {
+      argument = new ArrayList<>((List<?>) argument);
+    } else if (argument == null || intrinsics.get(argument.getClass()) == null) {
+      return new Visit(value, value.hashCode(), 1);
+    }
+
+    var visit = visit(argument);
+    var shape =
+        new Shape(
+            intrinsic,
+            new Object[] {visit.canonical},
+            intrinsic.getName().hashCode() * 31 + visit.hash);
+
+    var canonical = canonicals.get(shape);
+    if (canonical == null) {
+      canonical = intrinsic.construct(replacement(argument, visit));
+      canonicals.put(shape, canonical);
+    }
+    return new Visit(canonical, shape.hash, visit.size);
+  }
+
+  private Visit intern(Shape shape, Object value, int size) {
+    var canonical = canonicals.putIfAbsent(shape, value);
+    return new Visit(canonical == null ? value : canonical, shape.hash, size);
+  }
+}
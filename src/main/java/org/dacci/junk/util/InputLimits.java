@@ -0,0 +1,340 @@
+package org.dacci.junk.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+/**
+ * Limits on the input read by the converters, so that a pathological document fails quickly. The
+ * parsers created here also give up when the thread is interrupted. The defaults follow the later
+ * versions of SnakeYAML and Jackson, which have such limits built in.
+ */
+public class InputLimits {
+  public static class Builder {
+    private int maxDepth = 1000;
+    private long maxCodePoints = 3 * 1024 * 1024;
+    private int maxAliases = 50;
+    private int maxStringLength = 20_000_000;
+
+    private Builder() {}
+
+    /** Sets the number of collections allowed to be nested in one another. */
+    public Builder maxDepth(int maxDepth) {
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /** Sets the number of code points allowed in a YAML document, or 0 for any number. */
+    public Builder maxCodePoints(long maxCodePoints) {
+      this.maxCodePoints = maxCodePoints;
+      return this;
+    }
+
+    /** Sets the number of aliases to collections allowed in a YAML document. */
+    public Builder maxAliases(int maxAliases) {
+      this.maxAliases = maxAliases;
+      return this;
+    }
+
+    /** Sets the length allowed for a string, a key or a YAML scalar. */
+    public Builder maxStringLength(int maxStringLength) {
+      this.maxStringLength = maxStringLength;
+      return this;
+    }
+
+    public InputLimits build() {
+      return new InputLimits(maxDepth, maxCodePoints, maxAliases, maxStringLength);
+    }
+  }
+
+  private static class InterruptibleInputStream extends FilterInputStream {
+    InterruptibleInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      checkInterrupted();
+      return super.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      checkInterrupted();
+      return super.read(buffer, offset, length);
+    }
+  }
+
+  private class LimitedReader extends FilterReader {
+    private long codePoints;
+    private long documentStart;
+
+    LimitedReader(Reader in) {
+      super(in);
+    }
+
+    // the index of the parser is behind what has been read ahead
+    void startDocument(int index) {
+      documentStart = codePoints - ((int) codePoints - index);
+    }
+
+    @Override
+    public int read() throws IOException {
+      var c = new char[1];
+      return read(c, 0, 1) < 0 ? -1 : c[0];
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      checkInterrupted();
+
+      var count = super.read(buffer, offset, length);
+      for (var i = offset; i < offset + count; ++i) {
+        if (!Character.isLowSurrogate(buffer[i])) ++codePoints;
+      }
+      if (maxCodePoints > 0 && codePoints - documentStart > maxCodePoints) {
+        throw new IOException(
+            "The document exceeds the limit of " + maxCodePoints + " code points");
+      }
+
+      return count;
+    }
+  }
+
+  private class LimitedParser implements Parser {
+    private final LimitedReader reader;
+    private final StreamReader stream;
+    private final Parser parser;
+
+    private int depth;
+
+    LimitedParser(LimitedReader reader) {
+      this.reader = reader;
+      stream = new StreamReader(reader);
+      parser = new ParserImpl(stream);
+    }
+
+    @Override
+    public boolean checkEvent(Event.ID choice) {
+      return parser.checkEvent(choice);
+    }
+
+    @Override
+    public Event peekEvent() {
+      return parser.peekEvent();
+    }
+
+    @Override
+    public Event getEvent() {
+      if (Thread.currentThread().isInterrupted()) throw new YAMLException(interrupted());
+
+      var event = parser.getEvent();
+      if (event instanceof DocumentStartEvent) {
+        reader.startDocument(stream.getIndex());
+      } else if (event instanceof CollectionStartEvent) {
+        if (++depth > maxDepth) {
+          throw new YAMLException(
+              "Nesting depth exceeds the specified max=" + maxDepth + event.getStartMark());
+        }
+      } else if (event instanceof CollectionEndEvent) {
+        --depth;
+      } else if (event instanceof ScalarEvent
+          && ((ScalarEvent) event).getValue().length() > maxStringLength) {
+        throw new YAMLException(
+            "Scalar length exceeds the specified max=" + maxStringLength + event.getStartMark());
+      }
+
+      return event;
+    }
+  }
+
+  private class LimitedComposer extends Composer {
+    private final long maxExpandedBytes;
+    private final Map<Node, Long> sizes = new IdentityHashMap<>();
+
+    private long expandedBytes;
+
+    LimitedComposer(Reader reader, long maxExpandedBytes) {
+      super(parser(reader), new Resolver(), loaderOptions());
+      this.maxExpandedBytes = maxExpandedBytes;
+    }
+
+    @Override
+    public Node getNode() {
+      var node = super.getNode();
+      try {
+        size(node);
+      } finally {
+        sizes.clear();
+        expandedBytes = 0;
+      }
+      return node;
+    }
+
+    private long size(Node node) {
+      var size = sizes.get(node);
+      if (size != null) {
+        if (size < 0) throw new YAMLException("found recursive alias" + node.getStartMark());
+
+        expandedBytes += size;
+        if (expandedBytes > maxExpandedBytes) {
+          throw new YAMLException(
+              "Size of expanded aliases exceeds the specified max="
+                  + maxExpandedBytes
+                  + node.getStartMark());
+        }
+        return size;
+      }
+
+      sizes.put(node, -1L);
+      long total = 2;
+      if (node instanceof ScalarNode) {
+        total = ((ScalarNode) node).getValue().length() + 1;
+      } else if (node instanceof SequenceNode) {
+        for (var item : ((SequenceNode) node).getValue()) total += size(item);
+      } else {
+        for (var tuple : ((MappingNode) node).getValue()) {
+          total += size(tuple.getKeyNode()) + size(tuple.getValueNode());
+        }
+      }
+      sizes.put(node, total);
+      return total;
+    }
+  }
+
+  private class LimitedJsonParser extends JsonParserDelegate {
+    LimitedJsonParser(JsonParser parser) {
+      super(parser);
+    }
+
+    private int depth() {
+      var depth = 0;
+      for (var context = getParsingContext(); !context.inRoot(); context = context.getParent()) {
+        ++depth;
+      }
+      return depth;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+      checkInterrupted();
+
+      var token = super.nextToken();
+      if (token == null) return null;
+
+      switch (token) {
+        case START_OBJECT:
+        case START_ARRAY:
+          if (depth() > maxDepth) {
+            throw new JsonParseException(
+                this, "Nesting depth exceeds the specified max=" + maxDepth);
+          }
+          break;
+
+        case FIELD_NAME:
+        case VALUE_STRING:
+          if (getTextLength() > maxStringLength) {
+            throw new JsonParseException(
+                this, "String length exceeds the specified max=" + maxStringLength);
+          }
+          break;
+
+        default:
+          break;
+      }
+
+      return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+      var token = nextToken();
+      return token == JsonToken.FIELD_NAME ? nextToken() : token;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final int maxDepth;
+  private final long maxCodePoints;
+  private final int maxAliases;
+  private final int maxStringLength;
+
+  private InputLimits(int maxDepth, long maxCodePoints, int maxAliases, int maxStringLength) {
+    this.maxDepth = maxDepth;
+    this.maxCodePoints = maxCodePoints;
+    this.maxAliases = maxAliases;
+    this.maxStringLength = maxStringLength;
+  }
+
+  private static InterruptedIOException interrupted() {
+    return new InterruptedIOException("Interrupted while reading the input");
+  }
+
+  private static void checkInterrupted() throws InterruptedIOException {
+    if (Thread.currentThread().isInterrupted()) throw interrupted();
+  }
+
+  public int getMaxAliases() {
+    return maxAliases;
+  }
+
+  /** Returns the options of SnakeYAML, which limit only the aliases. */
+  public LoaderOptions loaderOptions() {
+    var options = new LoaderOptions();
+    options.setMaxAliasesForCollections(maxAliases);
+    return options;
+  }
+
+  /** Creates a YAML parser that reads {@code reader} within the limits. */
+  public Parser parser(Reader reader) {
+    return new LimitedParser(new LimitedReader(reader));
+  }
+
+  /**
+   * Creates a YAML composer that reads {@code reader} within the limits, and fails a document whose
+   * aliases expand to more than {@code maxExpandedBytes}.
+   */
+  public Composer composer(Reader reader, long maxExpandedBytes) {
+    return new LimitedComposer(reader, maxExpandedBytes);
+  }
+
+  /** Wraps {@code in} to give up reading when the thread is interrupted. */
+  public InputStream input(InputStream in) {
+    return new InterruptibleInputStream(in);
+  }
+
+  /** Wraps {@code parser} to read JSON within the limits, except for the length of the input. */
+  public JsonParser parser(JsonParser parser) {
+    return new LimitedJsonParser(parser);
+  }
+}
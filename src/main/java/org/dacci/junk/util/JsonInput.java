@@ -0,0 +1,55 @@
+package org.dacci.junk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Creates parsers that read JSON as bytes whenever the charset is a Unicode encoding, since the
+ * UTF-8 byte parser of Jackson is considerably faster than decoding through a {@code Reader}. The
+ * parser detects UTF-8, UTF-16 and UTF-32 and skips byte order marks by itself.
+ */
+public class JsonInput {
+  private static final long READ_THRESHOLD = 1024 * 1024;
+
+  private JsonInput() {}
+
+  /** Returns whether Jackson can detect {@code charset} from the bytes of the input. */
+  public static boolean isDetectable(Charset charset) {
+    return charset.name().startsWith("UTF-");
+  }
+
+  /**
+   * Creates a parser that reads {@code file}, which is read into memory at once if small, and
+   * streamed otherwise. Large files are not memory-mapped, as a mapping is only released once
+   * collected, and keeps the file from being replaced on Windows until then.
+   */
+  public static JsonParser createParser(JsonFactory factory, Path file, Charset charset)
+      throws IOException {
+    if (!isDetectable(charset)) {
+      return factory.createParser(Files.newBufferedReader(file, charset));
+    }
+
+    if (Files.size(file) < READ_THRESHOLD) {
+      return factory.createParser(Files.readAllBytes(file));
+    } else {
+      return factory.createParser(Files.newInputStream(file));
+    }
+  }
+
+  /** Creates a parser that reads {@code in}, such as the standard input. */
+  public static JsonParser createParser(JsonFactory factory, InputStream in, Charset charset)
+      throws IOException {
+    if (isDetectable(charset)) {
+      return factory.createParser(in);
+    } else {
+      return factory.createParser(new InputStreamReader(in, charset));
+    }
+  }
+}
@@ -1,20 +1,24 @@
 package org.dacci.junk.util;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.PrettyPrinter;
 import com.fasterxml.jackson.core.util.Instantiatable;
 
-import lombok.RequiredArgsConstructor;
-
-@RequiredArgsConstructor
+/**
+ * Lays out JSON like {@code JSON.stringify(value, null, indent)} does. The line separator followed
+ * by the indentation of each level is built once and shared by the instances, so that each line
+ * costs a single raw write.
+ */
 public class JsonStringifyPrettyPrinter
     implements Instantiatable<JsonStringifyPrettyPrinter>, PrettyPrinter {
 
   public static class Builder {
     private String lineSeparator;
     private String indent;
+    private int arrayWidth;
 
     private Builder() {
       lineSeparator = System.lineSeparator();
@@ -31,8 +35,18 @@ public class JsonStringifyPrettyPrinter
       return this;
     }
 
+    /**
+     * Keeps arrays of scalars on one line if the line fits in {@code arrayWidth} characters, for
+     * the generators passed through {@link
+     * JsonStringifyPrettyPrinter#compactArrays(JsonGenerator)}.
+     */
+    public Builder arrayWidth(int arrayWidth) {
+      this.arrayWidth = arrayWidth;
+      return this;
+    }
+
     public JsonStringifyPrettyPrinter build() {
-      return new JsonStringifyPrettyPrinter(lineSeparator, indent);
+      return new JsonStringifyPrettyPrinter(lineSeparator, indent, arrayWidth);
     }
   }
 
@@ -40,14 +54,41 @@ public class JsonStringifyPrettyPrinter
     return new Builder();
   }
 
+  private static final int CACHED_LEVELS = 16;
+
   private final String lineSeparator;
   private final String indent;
+  private final int arrayWidth;
 
+  private String[] newlines;
+  private String[] separators;
   private int level = 0;
 
+  public JsonStringifyPrettyPrinter(String lineSeparator, String indent) {
+    this(lineSeparator, indent, 0);
+  }
+
+  private JsonStringifyPrettyPrinter(String lineSeparator, String indent, int arrayWidth) {
+    this.lineSeparator = lineSeparator;
+    this.indent = indent;
+    this.arrayWidth = arrayWidth;
+
+    newlines = new String[CACHED_LEVELS];
+    separators = new String[CACHED_LEVELS];
+    newlines[0] = lineSeparator;
+    separators[0] = "," + lineSeparator;
+    for (var i = 1; i < CACHED_LEVELS; ++i) {
+      newlines[i] = newlines[i - 1] + indent;
+      separators[i] = separators[i - 1] + indent;
+    }
+  }
+
   public JsonStringifyPrettyPrinter(JsonStringifyPrettyPrinter base) {
     lineSeparator = base.lineSeparator;
     indent = base.indent;
+    arrayWidth = base.arrayWidth;
+    newlines = base.newlines;
+    separators = base.separators;
   }
 
   @Override
@@ -55,8 +96,33 @@ public class JsonStringifyPrettyPrinter
     return new JsonStringifyPrettyPrinter(this);
   }
 
-  private static void writeIndent(JsonGenerator gen, int level, String content) throws IOException {
-    for (int i = 0; i < level; ++i) gen.writeRaw(content);
+  /**
+   * Returns a generator that keeps arrays of scalars on one line within the array width, or {@code
+   * generator} itself if no array width is set.
+   */
+  public JsonGenerator compactArrays(JsonGenerator generator) {
+    if (arrayWidth <= 0) return generator;
+    return new CompactArrayGenerator(generator, indent.length(), arrayWidth);
+  }
+
+  private void grow() {
+    var length = newlines.length;
+    newlines = Arrays.copyOf(newlines, length * 2);
+    separators = Arrays.copyOf(separators, length * 2);
+    for (var i = length; i < newlines.length; ++i) {
+      newlines[i] = newlines[i - 1] + indent;
+      separators[i] = separators[i - 1] + indent;
+    }
+  }
+
+  private void writeNewline(JsonGenerator gen) throws IOException {
+    if (level >= newlines.length) grow();
+    gen.writeRaw(newlines[level]);
+  }
+
+  private void writeSeparator(JsonGenerator gen) throws IOException {
+    if (level >= separators.length) grow();
+    gen.writeRaw(separators[level]);
   }
 
   @Override
@@ -64,24 +130,26 @@ public class JsonStringifyPrettyPrinter
 
   @Override
   public void writeStartObject(JsonGenerator gen) throws IOException {
-    gen.writeRaw("{");
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, ++level, indent);
+    gen.writeRaw('{');
+    ++level;
+  }
+
+  @Override
+  public void beforeObjectEntries(JsonGenerator gen) throws IOException {
+    writeNewline(gen);
   }
 
   @Override
   public void writeEndObject(JsonGenerator gen, int nrOfEntries) throws IOException {
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, --level, indent);
-    gen.writeRaw("}");
+    --level;
+    if (nrOfEntries > 0) writeNewline(gen);
+    gen.writeRaw('}');
     if (level == 0) gen.writeRaw(lineSeparator);
   }
 
   @Override
   public void writeObjectEntrySeparator(JsonGenerator gen) throws IOException {
-    gen.writeRaw(",");
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, level, indent);
+    writeSeparator(gen);
   }
 
   @Override
@@ -91,28 +159,24 @@ public class JsonStringifyPrettyPrinter
 
   @Override
   public void writeStartArray(JsonGenerator gen) throws IOException {
-    gen.writeRaw("[");
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, ++level, indent);
+    gen.writeRaw('[');
+    ++level;
   }
 
   @Override
-  public void writeEndArray(JsonGenerator gen, int nrOfValues) throws IOException {
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, --level, indent);
-    gen.writeRaw("]");
+  public void beforeArrayValues(JsonGenerator gen) throws IOException {
+    writeNewline(gen);
   }
 
   @Override
-  public void writeArrayValueSeparator(JsonGenerator gen) throws IOException {
-    gen.writeRaw(",");
-    gen.writeRaw(lineSeparator);
-    writeIndent(gen, level, indent);
+  public void writeEndArray(JsonGenerator gen, int nrOfValues) throws IOException {
+    --level;
+    if (nrOfValues > 0) writeNewline(gen);
+    gen.writeRaw(']');
   }
 
   @Override
-  public void beforeArrayValues(JsonGenerator gen) throws IOException {}
-
-  @Override
-  public void beforeObjectEntries(JsonGenerator gen) throws IOException {}
+  public void writeArrayValueSeparator(JsonGenerator gen) throws IOException {
+    writeSeparator(gen);
+  }
 }
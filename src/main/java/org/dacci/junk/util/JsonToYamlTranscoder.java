@@ -0,0 +1,359 @@
+package org.dacci.junk.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.CollectionNode;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Converts JSON into YAML by translating parser tokens into emitter events, without materializing
+ * the document. The output is identical to dumping the bound document with a {@code Yaml} built
+ * from the same options.
+ *
+ * <p>With {@link FlowStyle#AUTO}, a collection is emitted in flow style only if all of its items
+ * are plain scalars, so such collections are buffered until the first item that is not. Memory is
+ * therefore bounded by the largest collection of scalars rather than by the document.
+ */
+public class JsonToYamlTranscoder {
+  private class PendingCollection {
+    private final boolean mapping;
+    private final List<Node> pending = new ArrayList<>();
+
+    private boolean deciding;
+
+    PendingCollection(boolean mapping) throws IOException {
+      this.mapping = mapping;
+
+      deciding = dumperOptions.getDefaultFlowStyle() == FlowStyle.AUTO;
+      if (!deciding) start(dumperOptions.getDefaultFlowStyle());
+    }
+
+    void add(Node... nodes) throws IOException {
+      if (deciding) {
+        if (Arrays.stream(nodes).allMatch(JsonToYamlTranscoder::isPlain)) {
+          pending.addAll(Arrays.asList(nodes));
+          return;
+        }
+
+        start(FlowStyle.BLOCK);
+      }
+
+      for (var node : nodes) writeNode(node);
+    }
+
+    void nest(Node key) throws IOException {
+      if (deciding) start(FlowStyle.BLOCK);
+      if (key != null) writeNode(key);
+    }
+
+    void end() throws IOException {
+      if (deciding) start(FlowStyle.FLOW);
+
+      if (mapping) {
+        emitter.emit(new MappingEndEvent(null, null));
+      } else {
+        emitter.emit(new SequenceEndEvent(null, null));
+      }
+    }
+
+    private void start(FlowStyle flowStyle) throws IOException {
+      if (mapping) {
+        emitter.emit(
+            new MappingStartEvent(null, Tag.MAP.getValue(), mapImplicit, null, null, flowStyle));
+      } else {
+        emitter.emit(
+            new SequenceStartEvent(
+                null, Tag.SEQ.getValue(), sequenceImplicit, null, null, flowStyle));
+      }
+
+      deciding = false;
+      for (var node : pending) writeNode(node);
+      pending.clear();
+    }
+  }
+
+  private static final Node[] NO_NODES = new Node[0];
+
+  private final DumperOptions dumperOptions;
+  private final Representer representer;
+  private final CloudFormationConstructor constructor;
+  private final Resolver resolver = new Resolver();
+
+  private final boolean mapImplicit;
+  private final boolean sequenceImplicit;
+
+  private Emitter emitter;
+
+  public JsonToYamlTranscoder(DumperOptions dumperOptions, Representer representer) {
+    this(dumperOptions, representer, null);
+  }
+
+  /**
+   * @param constructor if not {@code null}, single-entry objects keyed by CloudFormation intrinsic
+   *     functions are converted into their short form
+   */
+  public JsonToYamlTranscoder(
+      DumperOptions dumperOptions, Representer representer, CloudFormationConstructor constructor) {
+    this.dumperOptions = dumperOptions;
+    this.representer = representer;
+    this.constructor = constructor;
+
+    representer.setDefaultFlowStyle(dumperOptions.getDefaultFlowStyle());
+    representer.setDefaultScalarStyle(dumperOptions.getDefaultScalarStyle());
+    representer
+        .getPropertyUtils()
+        .setAllowReadOnlyProperties(dumperOptions.isAllowReadOnlyProperties());
+    representer.setTimeZone(dumperOptions.getTimeZone());
+
+    mapImplicit = Tag.MAP.equals(resolver.resolve(NodeId.mapping, null, true));
+    sequenceImplicit = Tag.SEQ.equals(resolver.resolve(NodeId.sequence, null, true));
+  }
+
+  public void transcode(JsonParser parser, Writer writer) throws IOException {
+    emitter = new Emitter(writer, dumperOptions);
+    try {
+      emitter.emit(new StreamStartEvent(null, null));
+
+      if (parser.nextToken() != null) writeDocument(parser);
+
+      emitter.emit(new StreamEndEvent(null, null));
+    } finally {
+      emitter = null;
+    }
+  }
+
+  /**
+   * Converts a sequence of JSON values, such as JSON Lines, into a stream of YAML documents, one
+   * document per value.
+   */
+  public void transcodeAll(JsonParser parser, Writer writer) throws IOException {
+    emitter = new Emitter(writer, dumperOptions);
+    try {
+      emitter.emit(new StreamStartEvent(null, null));
+
+      while (parser.nextToken() != null) writeDocument(parser);
+
+      emitter.emit(new StreamEndEvent(null, null));
+    } finally {
+      emitter = null;
+    }
+  }
+
+  private void writeDocument(JsonParser parser) throws IOException {
+    emitter.emit(
+        new DocumentStartEvent(
+            null,
+            null,
+            dumperOptions.isExplicitStart(),
+            dumperOptions.getVersion(),
+            dumperOptions.getTags()));
+    writeValue(parser);
+    emitter.emit(new DocumentEndEvent(null, null, dumperOptions.isExplicitEnd()));
+  }
+
+  private void writeValue(JsonParser parser) throws IOException {
+    switch (parser.currentToken()) {
+      case START_OBJECT:
+        writeObject(parser, readIntrinsic(parser));
+        break;
+
+      case START_ARRAY:
+        writeArray(parser);
+        break;
+
+      default:
+        writeNode(representScalar(parser));
+        break;
+    }
+  }
+
+  private Node representScalar(JsonParser parser) throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_STRING:
+      case FIELD_NAME:
+        return representer.represent(parser.getText());
+
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return representer.represent(parser.getNumberValue());
+
+      case VALUE_TRUE:
+        return representer.represent(Boolean.TRUE);
+
+      case VALUE_FALSE:
+        return representer.represent(Boolean.FALSE);
+
+      case VALUE_NULL:
+        return representer.represent(null);
+
+      default:
+        return representer.represent(parser.getEmbeddedObject());
+    }
+  }
+
+  private static boolean isPlain(Node node) {
+    return node instanceof ScalarNode && ((ScalarNode) node).isPlain();
+  }
+
+  /**
+   * Reads the start of an object to tell whether it is keyed by an intrinsic function. Returns the
+   * node of the intrinsic function if it is the only entry, its key and value if other entries
+   * follow, or no node otherwise. The parser is left after the nodes returned.
+   */
+  private Node[] readIntrinsic(JsonParser parser) throws IOException {
+    var token = parser.nextToken();
+    if (constructor == null
+        || token != JsonToken.FIELD_NAME
+        || !constructor.isIntrinsic(parser.currentName())) {
+      return NO_NODES;
+    }
+
+    var name = parser.currentName();
+    parser.nextToken();
+    var value = parser.readValueAs(Object.class);
+
+    if (parser.nextToken() == JsonToken.END_OBJECT) {
+      return new Node[] {construct(Collections.singletonMap(name, value))};
+    }
+    return new Node[] {representer.represent(name), construct(value)};
+  }
+
+  private void writeObject(JsonParser parser, Node[] intrinsic) throws IOException {
+    if (intrinsic.length == 1) {
+      writeNode(intrinsic[0]);
+      return;
+    }
+
+    var mapping = new PendingCollection(true);
+    if (intrinsic.length == 2) mapping.add(intrinsic);
+
+    for (var token = parser.currentToken();
+        token != JsonToken.END_OBJECT;
+        token = parser.nextToken()) {
+      var key = representScalar(parser);
+      parser.nextToken();
+      writeItem(mapping, key, parser);
+    }
+
+    mapping.end();
+  }
+
+  private Node construct(Object value) {
+    return representer.represent(constructor.construct(representer.represent(value)));
+  }
+
+  private void writeArray(JsonParser parser) throws IOException {
+    var sequence = new PendingCollection(false);
+    while (parser.nextToken() != JsonToken.END_ARRAY) writeItem(sequence, null, parser);
+    sequence.end();
+  }
+
+  /**
+   * Writes the value at the parser into {@code collection}, after {@code key} in a mapping. An
+   * intrinsic function is added as a node, so that it takes part in choosing the flow style.
+   */
+  private void writeItem(PendingCollection collection, Node key, JsonParser parser)
+      throws IOException {
+    var token = parser.currentToken();
+    Node node = null;
+    Node[] intrinsic = NO_NODES;
+    if (token.isScalarValue()) {
+      node = representScalar(parser);
+    } else if (token == JsonToken.START_OBJECT) {
+      intrinsic = readIntrinsic(parser);
+      if (intrinsic.length == 1) node = intrinsic[0];
+    }
+
+    if (node == null) {
+      collection.nest(key);
+      if (token == JsonToken.START_OBJECT) {
+        writeObject(parser, intrinsic);
+      } else {
+        writeArray(parser);
+      }
+    } else if (key == null) {
+      collection.add(node);
+    } else {
+      collection.add(key, node);
+    }
+  }
+
+  private void writeNode(Node node) throws IOException {
+    switch (node.getNodeId()) {
+      case scalar:
+        var scalarNode = (ScalarNode) node;
+        var detectedTag = resolver.resolve(NodeId.scalar, scalarNode.getValue(), true);
+        var defaultTag = resolver.resolve(NodeId.scalar, scalarNode.getValue(), false);
+        var implicit =
+            new ImplicitTuple(node.getTag().equals(detectedTag), node.getTag().equals(defaultTag));
+        emitter.emit(
+            new ScalarEvent(
+                null,
+                node.getTag().getValue(),
+                implicit,
+                scalarNode.getValue(),
+                null,
+                null,
+                scalarNode.getScalarStyle()));
+        break;
+
+      case sequence:
+        emitter.emit(
+            new SequenceStartEvent(
+                null,
+                node.getTag().getValue(),
+                node.getTag().equals(resolver.resolve(NodeId.sequence, null, true)),
+                null,
+                null,
+                ((CollectionNode<?>) node).getFlowStyle()));
+        for (var item : ((SequenceNode) node).getValue()) writeNode(item);
+        emitter.emit(new SequenceEndEvent(null, null));
+        break;
+
+      default:
+        emitter.emit(
+            new MappingStartEvent(
+                null,
+                node.getTag().getValue(),
+                node.getTag().equals(resolver.resolve(NodeId.mapping, null, true)),
+                null,
+                null,
+                ((CollectionNode<?>) node).getFlowStyle()));
+        for (NodeTuple tuple : ((MappingNode) node).getValue()) {
+          writeNode(tuple.getKeyNode());
+          writeNode(tuple.getValueNode());
+        }
+        emitter.emit(new MappingEndEvent(null, null));
+        break;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package org.dacci.junk.util;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects the content of a file, and then replaces the file with it only if the content differs.
+ * The file is replaced by renaming a temporary file over it, so that it is never observed partially
+ * written.
+ */
+public class OutputBuffer extends ByteArrayOutputStream {
+  /** Writes the content of a file too large to be buffered. */
+  @FunctionalInterface
+  public interface Content {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  private static class Comparison extends OutputStream {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE).limit(0);
+    private boolean differs;
+
+    Comparison(ReadableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (!buffer.hasRemaining() && !fill()) mismatch();
+
+        var length = Math.min(len, buffer.remaining());
+        var position = buffer.position();
+        if (!Arrays.equals(b, off, off + length, buffer.array(), position, position + length)) {
+          mismatch();
+        }
+
+        buffer.position(position + length);
+        off += length;
+        len -= length;
+      }
+    }
+
+    private boolean fill() throws IOException {
+      buffer.clear();
+      var read = 0;
+      while (read == 0) read = channel.read(buffer);
+      buffer.flip();
+      return read > 0;
+    }
+
+    private void mismatch() throws IOException {
+      differs = true;
+      throw new IOException("Content differs");
+    }
+
+    boolean matches() throws IOException {
+      return !differs && !buffer.hasRemaining() && !fill();
+    }
+
+    OutputStream tee(OutputStream out) {
+      return new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          out.write(b, off, len);
+          if (differs) return;
+
+          try {
+            Comparison.this.write(b, off, len);
+          } catch (IOException e) {
+            if (!differs) throw e;
+          }
+        }
+
+        @Override
+        public void flush() throws IOException {
+          out.flush();
+        }
+      };
+    }
+  }
+
+  private static final int RETAINED_CAPACITY = 16 * 1024 * 1024;
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  public OutputBuffer() {
+    super(CHUNK_SIZE);
+  }
+
+  @Override
+  public synchronized void reset() {
+    super.reset();
+    if (buf.length > RETAINED_CAPACITY) buf = new byte[CHUNK_SIZE];
+  }
+
+  /**
+   * Writes the content to {@code file} unless it already has the same content.
+   *
+   * @return whether the file has been written
+   */
+  public synchronized boolean writeTo(Path file) throws IOException {
+    var target = file;
+    try {
+      target = file.toRealPath();
+      if (contentEquals(target)) return false;
+    } catch (NoSuchFileException e) {
+      // create a new file
+    }
+
+    return replaceTarget(target, out -> out.write(buf, 0, count), null);
+  }
+
+  /** Returns whether {@code file} has the same content as streamed by {@code content}. */
+  public static boolean contentEquals(Path file, Content content) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(file, READ);
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+
+    try (channel) {
+      var comparison = new Comparison(channel);
+      try {
+        content.writeTo(comparison);
+        comparison.flush();
+      } catch (IOException | RuntimeException e) {
+        // writers may wrap the exception thrown by the comparison
+        if (comparison.differs) return false;
+        throw e;
+      }
+
+      return comparison.matches();
+    }
+  }
+
+  /**
+   * Replaces {@code file} with the content streamed unless it already has the same content.
+   *
+   * @return whether the file has been written
+   */
+  public static boolean replace(Path file, Content content) throws IOException {
+    Path target;
+    try {
+      target = file.toRealPath();
+    } catch (NoSuchFileException e) {
+      return replaceTarget(file, content, null);
+    }
+
+    try (var current = FileChannel.open(target, READ)) {
+      return replaceTarget(target, content, new Comparison(current));
+    }
+  }
+
+  private static boolean replaceTarget(Path target, Content content, Comparison comparison)
+      throws IOException {
+    var temp =
+        target.resolveSibling(
+            "."
+                + target.getFileName()
+                + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + ".tmp");
+    try {
+      try (var channel = FileChannel.open(temp, CREATE_NEW, WRITE)) {
+        var out = new BufferedOutputStream(Channels.newOutputStream(channel), CHUNK_SIZE);
+        content.writeTo(comparison == null ? out : comparison.tee(out));
+        out.flush();
+        if (comparison != null) {
+          var unchanged = comparison.matches();
+          // a file still open cannot be replaced on Windows
+          comparison.channel.close();
+          if (unchanged) return false;
+        }
+        channel.force(true);
+      }
+
+      copyPermissions(target, temp);
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** Returns whether {@code file} has the same content. */
+  public synchronized boolean contentEquals(Path file) throws IOException {
+    try (var channel = FileChannel.open(file, READ)) {
+      if (channel.size() != count) return false;
+
+      var buffer = ByteBuffer.allocate(Math.min(count, CHUNK_SIZE));
+      for (var position = 0; position < count; ) {
+        buffer.clear();
+        var read = channel.read(buffer);
+        if (read < 0) return false;
+        if (!Arrays.equals(buffer.array(), 0, read, buf, position, position + read)) return false;
+        position += read;
+      }
+
+      return channel.read(ByteBuffer.allocate(1)) < 0;
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  private static void copyPermissions(Path from, Path to) throws IOException {
+    var source = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+    var target = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+    if (source == null || target == null) return;
+
+    try {
+      target.setPermissions(source.readAttributes().permissions());
+    } catch (NoSuchFileException e) {
+      // a new file keeps the default permissions
+    }
+  }
+}
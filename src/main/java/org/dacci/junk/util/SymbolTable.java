@@ -0,0 +1,43 @@
+package org.dacci.junk.util;
+
+/**
+ * Canonicalizes the short strings of documents, such as mapping keys and resource types, so that
+ * the documents of a batch share one instance of each, and equal keys compare by identity. The
+ * table is bounded, and indexed directly by hash code: a string evicts the one of a colliding hash.
+ * It is accessed without synchronization, which is safe since strings are immutable.
+ */
+public class SymbolTable {
+  private static class Holder {
+    public static final SymbolTable INSTANCE = new SymbolTable(16384, 64);
+  }
+
+  /** Returns the table shared by the constructors of all the files processed. */
+  public static SymbolTable getShared() {
+    return Holder.INSTANCE;
+  }
+
+  private final String[] table;
+  private final int maxLength;
+
+  /**
+   * @param size the number of strings kept, rounded up to a power of two
+   * @param maxLength the length of the longest string to canonicalize
+   */
+  public SymbolTable(int size, int maxLength) {
+    this.table = new String[Integer.highestOneBit(Math.max(size - 1, 1)) << 1];
+    this.maxLength = maxLength;
+  }
+
+  /** Returns the canonical instance equal to {@code value}. */
+  public String intern(String value) {
+    if (value == null || value.length() > maxLength) return value;
+
+    var hash = value.hashCode();
+    var index = (hash ^ (hash >>> 16)) & (table.length - 1);
+    var symbol = table[index];
+    if (value.equals(symbol)) return symbol;
+
+    table[index] = value;
+    return value;
+  }
+}
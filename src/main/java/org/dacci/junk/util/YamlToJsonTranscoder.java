@@ -0,0 +1,519 @@
+package org.dacci.junk.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.constructor.Construct;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converts YAML into JSON by translating parser events into generator calls, without composing the
+ * node graph. The output is identical to serializing, with the same mapper, the document loaded by
+ * a {@code Yaml} built with the same constructor.
+ *
+ * <p>Untagged scalars and collections are written as they arrive. Tagged nodes, and with a {@link
+ * CloudFormationConstructor} single-entry mappings keyed by intrinsic functions, are composed and
+ * constructed one subtree at a time. Anchored nodes are kept to be replayed on alias, within a
+ * budget of aliases and of the bytes they expand to, so that a small document cannot expand into an
+ * output without bound. Merge keys are not supported.
+ *
+ * <p>Duplicate keys fail the conversion, unless the constructor {@linkplain
+ * SafeConstructor#isAllowDuplicateKeys() allows} them. Then they are written as they occur, whereas
+ * a loaded document keeps the last value.
+ */
+public class YamlToJsonTranscoder {
+  /** Receives the documents of a multi-document stream as they are converted. */
+  public interface DocumentOutput {
+    /** Returns the generator to write the next document to. */
+    JsonGenerator begin() throws IOException;
+
+    /** Called after the document has been written to {@code generator}. */
+    void end(JsonGenerator generator) throws IOException;
+  }
+
+  /**
+   * The events of an anchored node, kept without anchors and with marks that no longer hold on to
+   * the buffers of the reader, and the number of bytes they are estimated to expand to. Events
+   * replayed into another recording are shared rather than copied.
+   */
+  private static class Recording {
+    private final String anchor;
+    private final List<Event> events = new ArrayList<>();
+
+    private int depth;
+    private long size;
+
+    Recording(String anchor) {
+      this.anchor = anchor;
+    }
+
+    boolean add(Event event) {
+      events.add(event);
+
+      if (event instanceof CollectionStartEvent) {
+        ++depth;
+        ++size;
+      } else if (event instanceof CollectionEndEvent) {
+        --depth;
+        ++size;
+      } else if (event instanceof ScalarEvent) {
+        size += ((ScalarEvent) event).getValue().length() + 1;
+      }
+
+      return depth == 0;
+    }
+  }
+
+  private static class ReplayParser implements Parser {
+    private final Deque<Event> events = new ArrayDeque<>();
+
+    ReplayParser(List<Event> node) {
+      events.add(new StreamStartEvent(null, null));
+      events.add(new DocumentStartEvent(null, null, false, null, null));
+      events.addAll(node);
+      events.add(new DocumentEndEvent(null, null, false));
+      events.add(new StreamEndEvent(null, null));
+    }
+
+    @Override
+    public boolean checkEvent(Event.ID choice) {
+      return !events.isEmpty() && events.peekFirst().is(choice);
+    }
+
+    @Override
+    public Event peekEvent() {
+      return events.peekFirst();
+    }
+
+    @Override
+    public Event getEvent() {
+      return events.pollFirst();
+    }
+  }
+
+  public static final long DEFAULT_MAX_EXPANDED_BYTES = 64L << 20;
+
+  private static final int[] NO_BUFFER = new int[0];
+
+  private final SafeConstructor constructor;
+  private final CloudFormationConstructor intrinsics;
+  private final ObjectMapper mapper;
+  private final Resolver resolver = new Resolver();
+  private final Map<Tag, Construct> scalarConstructs = new HashMap<>();
+
+  private final Deque<Event> lookahead = new ArrayDeque<>();
+  private final Deque<Iterator<Event>> replay = new ArrayDeque<>();
+  private final Map<String, Recording> anchors = new HashMap<>();
+  private final List<Recording> recordings = new ArrayList<>();
+
+  private InputLimits limits = InputLimits.builder().build();
+  private LoaderOptions loaderOptions = limits.loaderOptions();
+  private long maxExpandedBytes = DEFAULT_MAX_EXPANDED_BYTES;
+
+  private Parser parser;
+  private JsonGenerator generator;
+  private int aliases;
+  private long expandedBytes;
+
+  /**
+   * @param constructor constructs tagged nodes; with a {@link CloudFormationConstructor}, intrinsic
+   *     functions are written in their {@code Fn::} form, which requires {@code mapper} to have
+   *     {@link CloudFormationModule} registered
+   */
+  public YamlToJsonTranscoder(SafeConstructor constructor, ObjectMapper mapper) {
+    this.constructor = constructor;
+    this.mapper = mapper;
+
+    if (constructor instanceof CloudFormationConstructor) {
+      intrinsics = (CloudFormationConstructor) constructor;
+    } else {
+      intrinsics = null;
+    }
+
+    scalarConstructs.put(Tag.BOOL, constructor.new ConstructYamlBool());
+    scalarConstructs.put(Tag.INT, constructor.new ConstructYamlInt());
+    scalarConstructs.put(Tag.FLOAT, constructor.new ConstructYamlFloat());
+    scalarConstructs.put(Tag.TIMESTAMP, new SafeConstructor.ConstructYamlTimestamp());
+  }
+
+  /** Sets the limits the input is read within, including the number of aliases to collections. */
+  public void setLimits(InputLimits limits) {
+    this.limits = limits;
+    loaderOptions = limits.loaderOptions();
+  }
+
+  /**
+   * Sets the size allowed for all the aliases of a document once expanded, estimated from the
+   * length of the scalars replayed.
+   */
+  public void setMaxExpandedBytes(long maxExpandedBytes) {
+    this.maxExpandedBytes = maxExpandedBytes;
+  }
+
+  public void transcode(Reader reader, Writer writer) throws IOException {
+    transcode(reader, mapper.writer().createGenerator(writer));
+  }
+
+  /** Converts YAML into JSON written as UTF-8 bytes, which is faster than through a writer. */
+  public void transcode(Reader reader, OutputStream out) throws IOException {
+    transcode(reader, mapper.writer().createGenerator(out));
+  }
+
+  /** Converts YAML into JSON written to {@code generator}, which is closed afterwards. */
+  public void transcode(Reader reader, JsonGenerator generator) throws IOException {
+    parser = limits.parser(reader);
+    try (generator) {
+      this.generator = generator;
+
+      next();
+      if (peek().is(Event.ID.StreamEnd)) {
+        generator.writeNull();
+      } else {
+        writeDocument();
+
+        if (!peek().is(Event.ID.StreamEnd)) {
+          throw new YAMLException(
+              "expected a single document in the stream" + peek().getStartMark());
+        }
+      }
+    } finally {
+      reset();
+    }
+  }
+
+  /**
+   * Converts each document in the stream into a separate JSON value. Anchors are forgotten at the
+   * end of each document, so memory is bounded by the largest document rather than the stream.
+   */
+  public void transcodeAll(Reader reader, DocumentOutput output) throws IOException {
+    parser = limits.parser(reader);
+    try {
+      next();
+      while (!peek().is(Event.ID.StreamEnd)) {
+        generator = output.begin();
+        writeDocument();
+        output.end(generator);
+      }
+    } finally {
+      reset();
+    }
+  }
+
+  private void writeDocument() throws IOException {
+    next();
+    writeValue(next());
+    next();
+
+    aliases = 0;
+    expandedBytes = 0;
+    anchors.clear();
+  }
+
+  private void reset() {
+    parser = null;
+    generator = null;
+    aliases = 0;
+    expandedBytes = 0;
+    lookahead.clear();
+    replay.clear();
+    anchors.clear();
+    recordings.clear();
+  }
+
+  private Event next() {
+    if (!lookahead.isEmpty()) return lookahead.removeFirst();
+
+    while (!replay.isEmpty()) {
+      var events = replay.peekFirst();
+      if (events.hasNext()) {
+        var event = events.next();
+        record(event);
+        return event;
+      }
+      replay.removeFirst();
+    }
+
+    var event = parser.getEvent();
+    if (event instanceof AliasEvent) {
+      expand((AliasEvent) event);
+      return next();
+    }
+
+    if (event instanceof NodeEvent && ((NodeEvent) event).getAnchor() != null) {
+      recordings.add(new Recording(((NodeEvent) event).getAnchor()));
+    }
+    if (!recordings.isEmpty()) record(compact(event));
+    return event;
+  }
+
+  private Event peek() {
+    if (lookahead.isEmpty()) lookahead.addFirst(next());
+    return lookahead.peekFirst();
+  }
+
+  private void expand(AliasEvent alias) {
+    var recording = anchors.get(alias.getAnchor());
+    if (recording == null) {
+      throw new YAMLException("found undefined alias " + alias.getAnchor() + alias.getStartMark());
+    }
+
+    var events = recording.events;
+    var maxAliases = limits.getMaxAliases();
+    if (events.size() > 1 && ++aliases > maxAliases) {
+      throw new YAMLException(
+          "Number of aliases for non-scalar nodes exceeds the specified max=" + maxAliases);
+    }
+
+    expandedBytes += recording.size;
+    if (expandedBytes > maxExpandedBytes) {
+      throw new YAMLException(
+          "Size of expanded aliases exceeds the specified max="
+              + maxExpandedBytes
+              + alias.getStartMark());
+    }
+
+    replay.addFirst(events.iterator());
+  }
+
+  private static Mark compact(Mark mark) {
+    if (mark == null) return null;
+    return new Mark(
+        mark.getName(), mark.getIndex(), mark.getLine(), mark.getColumn(), NO_BUFFER, 0);
+  }
+
+  /** Copies {@code event} to be recorded, with the anchor dropped as it is not defined again. */
+  private static Event compact(Event event) {
+    var mark = compact(event.getStartMark());
+    if (event instanceof ScalarEvent) {
+      var scalar = (ScalarEvent) event;
+      return new ScalarEvent(
+          null,
+          scalar.getTag(),
+          scalar.getImplicit(),
+          scalar.getValue(),
+          mark,
+          mark,
+          scalar.getScalarStyle());
+    } else if (event instanceof MappingStartEvent) {
+      var start = (MappingStartEvent) event;
+      return new MappingStartEvent(
+          null, start.getTag(), start.getImplicit(), mark, mark, start.getFlowStyle());
+    } else if (event instanceof SequenceStartEvent) {
+      var start = (SequenceStartEvent) event;
+      return new SequenceStartEvent(
+          null, start.getTag(), start.getImplicit(), mark, mark, start.getFlowStyle());
+    } else if (event instanceof MappingEndEvent) {
+      return new MappingEndEvent(mark, mark);
+    } else if (event instanceof SequenceEndEvent) {
+      return new SequenceEndEvent(mark, mark);
+    }
+
+    return event;
+  }
+
+  private void record(Event event) {
+    for (var i = recordings.iterator(); i.hasNext(); ) {
+      var recording = i.next();
+      if (recording.add(event)) {
+        anchors.put(recording.anchor, recording);
+        i.remove();
+      }
+    }
+  }
+
+  private List<Event> collect(Event event, List<Event> events) {
+    events.add(event);
+
+    if (event instanceof CollectionStartEvent) {
+      for (var depth = 1; depth > 0; ) {
+        var nested = next();
+        events.add(nested);
+
+        if (nested instanceof CollectionStartEvent) {
+          ++depth;
+        } else if (nested instanceof CollectionEndEvent) {
+          --depth;
+        }
+      }
+    }
+
+    return events;
+  }
+
+  private Object construct(List<Event> events) {
+    constructor.setComposer(new Composer(new ReplayParser(events), resolver, loaderOptions));
+    return constructor.getSingleData(Object.class);
+  }
+
+  private Object construct(Event event) {
+    return construct(collect(event, new ArrayList<>()));
+  }
+
+  private static boolean isTagged(Event event) {
+    if (event instanceof ScalarEvent) {
+      return ((ScalarEvent) event).getTag() != null;
+    } else if (event instanceof CollectionStartEvent) {
+      return ((CollectionStartEvent) event).getTag() != null;
+    }
+
+    return false;
+  }
+
+  private Tag resolve(ScalarEvent event) {
+    return resolver.resolve(
+        NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+  }
+
+  private Object constructScalar(ScalarEvent event, Tag tag) {
+    if (Tag.STR.equals(tag)) {
+      return event.getValue();
+    } else if (Tag.NULL.equals(tag)) {
+      return null;
+    }
+
+    var construct = scalarConstructs.get(tag);
+    if (construct == null) return construct(event);
+
+    return construct.construct(
+        new ScalarNode(
+            tag,
+            event.getValue(),
+            event.getStartMark(),
+            event.getEndMark(),
+            event.getScalarStyle()));
+  }
+
+  private void writeValue(Event event) throws IOException {
+    if (isTagged(event)) {
+      generator.writeObject(construct(event));
+      return;
+    }
+
+    switch (event.getEventId()) {
+      case Scalar:
+        var value = constructScalar((ScalarEvent) event, resolve((ScalarEvent) event));
+        if (value instanceof String) {
+          generator.writeString((String) value);
+        } else {
+          generator.writeObject(value);
+        }
+        break;
+
+      case SequenceStart:
+        writeSequence();
+        break;
+
+      case MappingStart:
+        writeMapping((MappingStartEvent) event);
+        break;
+
+      default:
+        throw new YAMLException("Unexpected event: " + event);
+    }
+  }
+
+  private void writeSequence() throws IOException {
+    generator.writeStartArray();
+    while (!peek().is(Event.ID.SequenceEnd)) writeValue(next());
+    next();
+    generator.writeEndArray();
+  }
+
+  private boolean isIntrinsic(Event event) {
+    return intrinsics != null
+        && event instanceof ScalarEvent
+        && intrinsics.isIntrinsic(((ScalarEvent) event).getValue());
+  }
+
+  private void writeMapping(MappingStartEvent start) throws IOException {
+    if (isIntrinsic(peek())) {
+      var events = new ArrayList<Event>();
+      events.add(start);
+      collect(next(), events);
+      collect(next(), events);
+
+      if (peek().is(Event.ID.MappingEnd)) {
+        events.add(next());
+        generator.writeObject(construct(events));
+        return;
+      }
+
+      for (var i = events.size() - 1; i > 0; --i) lookahead.addFirst(events.get(i));
+    }
+
+    var keys = constructor.isAllowDuplicateKeys() ? null : new HashSet<>();
+    generator.writeStartObject();
+    while (!peek().is(Event.ID.MappingEnd)) {
+      var event = next();
+      var key = constructKey(event);
+      if (keys != null && !keys.add(key)) {
+        throw new YAMLException("found duplicate key " + key + event.getStartMark());
+      }
+
+      writeKey(key);
+      writeValue(next());
+    }
+    next();
+    generator.writeEndObject();
+  }
+
+  private Object constructKey(Event event) {
+    if (isTagged(event) || !(event instanceof ScalarEvent)) return construct(event);
+
+    var tag = resolve((ScalarEvent) event);
+    if (Tag.MERGE.equals(tag)) {
+      throw new YAMLException("merge keys are not supported" + event.getStartMark());
+    }
+
+    return constructScalar((ScalarEvent) event, tag);
+  }
+
+  private void writeKey(Object key) throws IOException {
+    if (key instanceof String) {
+      generator.writeFieldName((String) key);
+    } else {
+      var provider = mapper.getSerializerProviderInstance();
+      if (key == null) {
+        provider.getDefaultNullKeySerializer().serialize(null, generator, provider);
+      } else {
+        provider.findKeySerializer(key.getClass(), null).serialize(key, generator, provider);
+      }
+    }
+  }
+}
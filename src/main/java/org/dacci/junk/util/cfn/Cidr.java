@@ -1,10 +1,8 @@
 package org.dacci.junk.util.cfn;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+@Value
 public class Cidr {
   private Object ipBlock;
   private int count;
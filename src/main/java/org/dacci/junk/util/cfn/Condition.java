@@ -1,10 +1,18 @@
 package org.dacci.junk.util.cfn;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+@Value
 public class Condition {
+  private static final Interner<Condition> INTERNER = new Interner<>();
+
   private String condition;
+
+  /** Returns the interned instance referring to {@code condition}. */
+  public static Condition of(String condition) {
+    var hash = condition.hashCode();
+    var cached = INTERNER.get(hash);
+    if (cached != null && cached.condition.equals(condition)) return cached;
+    return INTERNER.put(hash, new Condition(condition));
+  }
 }
@@ -3,19 +3,44 @@ package org.dacci.junk.util.cfn;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
-import lombok.Data;
+import lombok.Getter;
 
-@Data
+/**
+ * Base class of the condition functions. The conditions are kept without being copied, behind an
+ * unmodifiable view, and functions of different classes are not equal even with equal conditions.
+ */
+@Getter
 public abstract class Conditional {
   private final List<?> conditions;
 
   protected Conditional(Object[] conditions) {
-    this.conditions = new ArrayList<>(Arrays.asList(conditions));
+    this.conditions = Collections.unmodifiableList(Arrays.asList(conditions));
   }
 
+  /** Takes {@code conditions} if it is a list, which must not be modified afterwards. */
   protected Conditional(Collection<?> conditions) {
-    this.conditions = new ArrayList<>(conditions);
+    this.conditions =
+        Collections.unmodifiableList(
+            conditions instanceof List ? (List<?>) conditions : new ArrayList<>(conditions));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) return true;
+    if (obj == null || obj.getClass() != getClass()) return false;
+    return conditions.equals(((Conditional) obj).conditions);
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode() * 31 + conditions.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(conditions=" + conditions + ")";
   }
 }
@@ -1,11 +1,21 @@
 package org.dacci.junk.util.cfn;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+@Value
 public class GetAtt {
+  private static final Interner<GetAtt> INTERNER = new Interner<>();
+
   private Object resource;
   private String attribute;
+
+  /** Returns the interned instance getting {@code attribute} of {@code resource}. */
+  public static GetAtt of(String resource, String attribute) {
+    var hash = resource.hashCode() * 31 + attribute.hashCode();
+    var cached = INTERNER.get(hash);
+    if (cached != null && cached.resource.equals(resource) && cached.attribute.equals(attribute)) {
+      return cached;
+    }
+    return INTERNER.put(hash, new GetAtt(resource, attribute));
+  }
 }
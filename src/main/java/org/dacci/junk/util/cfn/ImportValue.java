@@ -1,10 +1,18 @@
 package org.dacci.junk.util.cfn;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+@Value
 public class ImportValue {
+  private static final Interner<ImportValue> INTERNER = new Interner<>();
+
   private Object reference;
+
+  /** Returns the interned instance importing {@code reference}. */
+  public static ImportValue of(String reference) {
+    var hash = reference.hashCode();
+    var cached = INTERNER.get(hash);
+    if (cached != null && cached.reference.equals(reference)) return cached;
+    return INTERNER.put(hash, new ImportValue(reference));
+  }
 }
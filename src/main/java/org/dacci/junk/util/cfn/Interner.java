@@ -0,0 +1,28 @@
+package org.dacci.junk.util.cfn;
+
+/**
+ * A bounded cache of immutable values, indexed directly by hash code, so that a template repeating
+ * a value shares a single instance and a hit allocates nothing. A value evicts the one of a
+ * colliding hash. The table is accessed without synchronization, which is safe since the values
+ * have only final fields; at worst, equal values are created twice.
+ */
+final class Interner<T> {
+  private static final int SIZE = 4096;
+
+  private final Object[] table = new Object[SIZE];
+
+  private static int index(int hash) {
+    return (hash ^ (hash >>> 16)) & (SIZE - 1);
+  }
+
+  /** Returns the value cached for {@code hash}, which may be not equal to the one looked up. */
+  @SuppressWarnings("unchecked")
+  T get(int hash) {
+    return (T) table[index(hash)];
+  }
+
+  T put(int hash, T value) {
+    table[index(hash)] = value;
+    return value;
+  }
+}
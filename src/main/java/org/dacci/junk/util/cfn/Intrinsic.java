@@ -0,0 +1,122 @@
+package org.dacci.junk.util.cfn;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Describes an intrinsic function: how its value is constructed from the argument of the function,
+ * and how the argument is taken back from the value. An argument is a string, a list or a map, as
+ * written in a template. The YAML constructor and representer, and the Jackson module, are all
+ * generated from these descriptions, which are collected by {@link Intrinsics}.
+ */
+public final class Intrinsic<T> {
+  /**
+   * Supplies intrinsic functions besides the built-in ones. Providers are loaded with {@link
+   * java.util.ServiceLoader}, and a function supplied replaces the built-in one of the same name.
+   */
+  public interface Provider {
+    Collection<Intrinsic<?>> intrinsics();
+  }
+
+  public static class Builder<T> {
+    private final String name;
+    private final Class<T> type;
+    private Function<Object, ? extends T> constructor;
+    private Function<? super T, ?> argument;
+    private Function<? super T, ?> shortArgument;
+
+    private Builder(String name, Class<T> type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    /**
+     * Constructs the value from the argument. A {@link ClassCastException} or {@link
+     * IndexOutOfBoundsException} thrown for an argument of unexpected shape is reported as an
+     * {@link IllegalArgumentException}.
+     */
+    public Builder<T> constructor(Function<Object, ? extends T> constructor) {
+      this.constructor = constructor;
+      return this;
+    }
+
+    public Builder<T> argument(Function<? super T, ?> argument) {
+      this.argument = argument;
+      return this;
+    }
+
+    /**
+     * Takes the argument written after the tag of the short form in YAML, or {@code null} to write
+     * the function as a mapping. The argument of the full form is used if not set.
+     */
+    public Builder<T> shortArgument(Function<? super T, ?> shortArgument) {
+      this.shortArgument = shortArgument;
+      return this;
+    }
+
+    public Intrinsic<T> build() {
+      return new Intrinsic<>(
+          name,
+          type,
+          Objects.requireNonNull(constructor),
+          Objects.requireNonNull(argument),
+          shortArgument == null ? argument : shortArgument);
+    }
+  }
+
+  public static <T> Builder<T> builder(String name, Class<T> type) {
+    return new Builder<>(name, type);
+  }
+
+  private final String name;
+  private final String tagName;
+  private final Class<T> type;
+  private final Function<Object, ? extends T> constructor;
+  private final Function<? super T, ?> argument;
+  private final Function<? super T, ?> shortArgument;
+
+  private Intrinsic(
+      String name,
+      Class<T> type,
+      Function<Object, ? extends T> constructor,
+      Function<? super T, ?> argument,
+      Function<? super T, ?> shortArgument) {
+    this.name = name;
+    this.tagName = "!" + (name.startsWith("Fn::") ? name.substring(4) : name);
+    this.type = type;
+    this.constructor = constructor;
+    this.argument = argument;
+    this.shortArgument = shortArgument;
+  }
+
+  /** Returns the key of the function, such as {@code Fn::GetAtt}. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the tag of the short form of the function, such as {@code !GetAtt}. */
+  public String getTagName() {
+    return tagName;
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  public T construct(Object argument) {
+    try {
+      return constructor.apply(argument);
+    } catch (ClassCastException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Unexpected argument of " + name + ": " + argument, e);
+    }
+  }
+
+  public Object argument(Object value) {
+    return argument.apply(type.cast(value));
+  }
+
+  public Object shortArgument(Object value) {
+    return shortArgument.apply(type.cast(value));
+  }
+}
@@ -0,0 +1,223 @@
+package org.dacci.junk.util.cfn;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * The table of the intrinsic functions: the built-in ones, followed by those of the {@link
+ * Intrinsic.Provider}s found on the class path. Functions are looked up by name on every
+ * single-entry mapping of a template, so the table is built once and shared.
+ */
+public class Intrinsics {
+  private static class Holder {
+    public static final Intrinsics INSTANCE = new Intrinsics();
+  }
+
+  public static Intrinsics getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private final Map<String, Intrinsic<?>> intrinsics = new HashMap<>();
+  private final Map<Class<?>, Intrinsic<?>> types = new HashMap<>();
+
+  private Intrinsics() {
+    builtins().forEach(this::add);
+    for (var provider : ServiceLoader.load(Intrinsic.Provider.class)) {
+      provider.intrinsics().forEach(this::add);
+    }
+  }
+
+  private void add(Intrinsic<?> intrinsic) {
+    var replaced = intrinsics.put(intrinsic.getName(), intrinsic);
+    if (replaced != null) types.remove(replaced.getType());
+    types.put(intrinsic.getType(), intrinsic);
+  }
+
+  /** Returns the function keyed by {@code name}, or {@code null} if it is not a function. */
+  public Intrinsic<?> get(String name) {
+    return intrinsics.get(name);
+  }
+
+  /** Returns the function of which {@code type} is the value, or {@code null} if none. */
+  public Intrinsic<?> get(Class<?> type) {
+    return types.get(type);
+  }
+
+  public Collection<Intrinsic<?>> getAll() {
+    return Collections.unmodifiableCollection(intrinsics.values());
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof Number || value instanceof CharSequence;
+  }
+
+  private static List<?> list(Object argument) {
+    return (List<?>) argument;
+  }
+
+  private static int parseInt(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    } else if (value instanceof CharSequence) {
+      return Integer.parseInt(((CharSequence) value).toString());
+    }
+
+    throw new IllegalArgumentException(value + " is neither Number nor CharSequence");
+  }
+
+  private static Base64 constructBase64(Object argument) {
+    if (argument instanceof List) {
+      throw new IllegalArgumentException("Unexpected argument of Fn::Base64: " + argument);
+    }
+
+    return new Base64(argument);
+  }
+
+  private static GetAtt constructGetAtt(Object argument) {
+    if (argument instanceof List) {
+      var resource = list(argument).get(0);
+      var attribute = (String) list(argument).get(1);
+      if (resource instanceof String && attribute != null) {
+        return GetAtt.of((String) resource, attribute);
+      }
+      return new GetAtt(resource, attribute);
+    }
+
+    var pair = ((String) argument).split("\\.", 2);
+    return GetAtt.of(pair[0], pair[1]);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Sub constructSub(Object argument) {
+    if (argument instanceof List) {
+      var sequence = list(argument);
+      return new Sub((String) sequence.get(0), (Map<String, Object>) sequence.get(1));
+    }
+
+    return new Sub((String) argument, Collections.emptyMap());
+  }
+
+  private static Object subArgument(Sub sub) {
+    var variables = sub.getVariables();
+    if (variables == null || variables.isEmpty()) return sub.getTemplate();
+    return Arrays.asList(sub.getTemplate(), variables);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Transform constructTransform(Object argument) {
+    var mapping = (Map<String, ?>) argument;
+    return new Transform((String) mapping.get("Name"), (Map<String, ?>) mapping.get("Parameters"));
+  }
+
+  private static Object transformArgument(Transform transform) {
+    var mapping = new LinkedHashMap<>();
+    mapping.put("Name", transform.getName());
+    mapping.put("Parameters", transform.getParameters());
+    return mapping;
+  }
+
+  private static List<Intrinsic<?>> builtins() {
+    return List.of(
+        Intrinsic.builder("Fn::Base64", Base64.class)
+            .constructor(Intrinsics::constructBase64)
+            .argument(Base64::getValue)
+            .shortArgument(value -> isScalar(value.getValue()) ? value.getValue() : null)
+            .build(),
+        Intrinsic.builder("Fn::Cidr", Cidr.class)
+            .constructor(
+                argument ->
+                    new Cidr(
+                        list(argument).get(0),
+                        parseInt(list(argument).get(1)),
+                        parseInt(list(argument).get(2))))
+            .argument(
+                value -> Arrays.asList(value.getIpBlock(), value.getCount(), value.getCidrBits()))
+            .build(),
+        Intrinsic.builder("Fn::And", And.class)
+            .constructor(argument -> new And(list(argument)))
+            .argument(Conditional::getConditions)
+            .build(),
+        Intrinsic.builder("Fn::Equals", Equals.class)
+            .constructor(argument -> new Equals(list(argument)))
+            .argument(Conditional::getConditions)
+            .build(),
+        Intrinsic.builder("Fn::If", If.class)
+            .constructor(argument -> new If(list(argument)))
+            .argument(Conditional::getConditions)
+            .build(),
+        Intrinsic.builder("Fn::Not", Not.class)
+            .constructor(argument -> new Not(list(argument)))
+            .argument(Conditional::getConditions)
+            .build(),
+        Intrinsic.builder("Fn::Or", Or.class)
+            .constructor(argument -> new Or(list(argument)))
+            .argument(Conditional::getConditions)
+            .build(),
+        Intrinsic.builder("Fn::FindInMap", FindInMap.class)
+            .constructor(
+                argument ->
+                    new FindInMap(
+                        (String) list(argument).get(0),
+                        list(argument).get(1),
+                        (String) list(argument).get(2)))
+            .argument(
+                value ->
+                    Arrays.asList(
+                        value.getMapName(), value.getTopLevelKey(), value.getSecondLevelKey()))
+            .build(),
+        Intrinsic.builder("Fn::GetAtt", GetAtt.class)
+            .constructor(Intrinsics::constructGetAtt)
+            .argument(value -> Arrays.asList(value.getResource(), value.getAttribute()))
+            .shortArgument(value -> value.getResource() + "." + value.getAttribute())
+            .build(),
+        Intrinsic.builder("Fn::GetAZs", GetAZs.class)
+            .constructor(argument -> new GetAZs((String) argument))
+            .argument(GetAZs::getRegion)
+            .shortArgument(value -> isScalar(value.getRegion()) ? value.getRegion() : null)
+            .build(),
+        Intrinsic.builder("Fn::ImportValue", ImportValue.class)
+            .constructor(argument -> ImportValue.of((String) argument))
+            .argument(ImportValue::getReference)
+            .shortArgument(value -> isScalar(value.getReference()) ? value.getReference() : null)
+            .build(),
+        Intrinsic.builder("Fn::Join", Join.class)
+            .constructor(
+                argument ->
+                    new Join(Objects.toString(list(argument).get(0)), list(argument).get(1)))
+            .argument(value -> Arrays.asList(value.getDelimiter(), value.getValues()))
+            .build(),
+        Intrinsic.builder("Fn::Select", Select.class)
+            .constructor(
+                argument -> new Select(parseInt(list(argument).get(0)), list(argument).get(1)))
+            .argument(value -> Arrays.asList(value.getIndex(), value.getSelection()))
+            .build(),
+        Intrinsic.builder("Fn::Split", Split.class)
+            .constructor(
+                argument -> new Split((String) list(argument).get(0), list(argument).get(1)))
+            .argument(value -> Arrays.asList(value.getDelimiter(), value.getSource()))
+            .build(),
+        Intrinsic.builder("Fn::Sub", Sub.class)
+            .constructor(Intrinsics::constructSub)
+            .argument(Intrinsics::subArgument)
+            .build(),
+        Intrinsic.builder("Fn::Transform", Transform.class)
+            .constructor(Intrinsics::constructTransform)
+            .argument(Intrinsics::transformArgument)
+            .build(),
+        Intrinsic.builder("Ref", Ref.class)
+            .constructor(argument -> Ref.of((String) argument))
+            .argument(Ref::getReference)
+            .build(),
+        Intrinsic.builder("Condition", Condition.class)
+            .constructor(argument -> Condition.of((String) argument))
+            .argument(Condition::getCondition)
+            .build());
+  }
+}
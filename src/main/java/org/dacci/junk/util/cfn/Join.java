@@ -1,13 +1,10 @@
 package org.dacci.junk.util.cfn;
 
-import java.util.List;
+import lombok.Value;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-
-@Data
-@AllArgsConstructor
+@Value
 public class Join {
   private String delimiter;
-  private List<?> values;
+  /** The list of values, or a function returning a list. */
+  private Object values;
 }
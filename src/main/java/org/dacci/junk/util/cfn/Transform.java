@@ -2,11 +2,9 @@ package org.dacci.junk.util.cfn;
 
 import java.util.Map;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+@Value
 public class Transform {
   private String name;
   private Map<String, ?> parameters;
@@ -1,11 +1,7 @@
 package org.dacci.junk.xml;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,59 +13,69 @@ import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
+import org.dacci.junk.FileCommand;
+import org.dacci.junk.util.InputLimits;
+
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 
 @Command(name = "format-pom")
 @Slf4j
-public class FormatPom implements Runnable {
+public class FormatPom extends FileCommand {
   private static final Path HYPHEN_PATH = Paths.get("-");
 
   @Parameters private List<Path> files = new ArrayList<>();
 
+  private InputLimits limits;
   private MavenXpp3Reader reader;
   private MavenXpp3Writer writer;
 
   private InputStream openForRead(Path file) throws IOException {
     if (file.equals(HYPHEN_PATH)) {
-      return System.in;
+      return stdin();
     } else {
-      return Files.newInputStream(file);
+      return limits.input(Files.newInputStream(file));
     }
   }
 
-  private OutputStream openForWrite(Path file) throws IOException {
-    if (file.equals(HYPHEN_PATH)) {
-      return System.out;
-    } else {
-      return Files.newOutputStream(file, CREATE, TRUNCATE_EXISTING);
-    }
+  @Override
+  protected List<String> defaultIncludes() {
+    return List.of("**/pom.xml");
   }
 
-  private void processFile(Path file) {
+  @Override
+  protected boolean processFile(Path file) {
     Model model;
     try (var in = openForRead(file)) {
       model = reader.read(in);
     } catch (IOException | XmlPullParserException e) {
       log.error("Failed to load", e);
-      return;
+      return false;
     }
 
-    try (var out = openForWrite(file)) {
-      writer.write(out, model);
+    try {
+      if (file.equals(HYPHEN_PATH)) {
+        writer.write(stdout(), model);
+      } else {
+        var buffer = outputBuffer();
+        writer.write(buffer, model);
+        writeOutput(buffer, file);
+      }
     } catch (IOException e) {
       log.error("Failed to save", e);
-      return;
+      return false;
     }
+
+    return true;
   }
 
   @Override
   public void run() {
+    limits = inputLimits();
     if (reader == null) reader = new MavenXpp3Reader();
     if (writer == null) writer = new MavenXpp3Writer();
 
-    if (files.isEmpty()) files.add(HYPHEN_PATH);
-    files.forEach(this::processFile);
+    processFiles(files.isEmpty() ? List.of(HYPHEN_PATH) : files);
   }
 }
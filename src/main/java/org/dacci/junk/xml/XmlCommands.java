@@ -1,10 +1,10 @@
 package org.dacci.junk.xml;
 
 import org.dacci.junk.Main.CommandGroup;
+import org.dacci.junk.Main.LazySubcommands;
 
 import picocli.CommandLine.Command;
 
-@Command(
-    name = "xml",
-    subcommands = {FormatPom.class})
+@Command(name = "xml")
+@LazySubcommands({FormatPom.class})
 public class XmlCommands implements CommandGroup {}
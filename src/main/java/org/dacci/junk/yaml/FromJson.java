@@ -1,92 +1,224 @@
 package org.dacci.junk.yaml;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
 import org.yaml.snakeyaml.Yaml;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.dacci.junk.FileCommand;
+import org.dacci.junk.util.CloudFormationModule;
+import org.dacci.junk.util.HashConsing;
+import org.dacci.junk.util.InputLimits;
+import org.dacci.junk.util.JsonInput;
+import org.dacci.junk.util.JsonToYamlTranscoder;
+import org.dacci.junk.util.OutputBuffer;
+
 import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
-import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
 
 @Command(name = "from-json")
 @Slf4j
-public class FromJson implements Runnable {
+public class FromJson extends FileCommand {
   private static final Path HYPHEN_PATH = Paths.get("-");
   private static final ObjectMapper JSON = new ObjectMapper();
+  private static final ObjectMapper CFN_JSON =
+      new ObjectMapper().registerModule(CloudFormationModule.getInstance());
 
-  @ParentCommand private YamlCommands parent;
+  @Spec private CommandSpec spec;
 
   @Option(names = "--charset")
   private Charset charset = StandardCharsets.UTF_8;
 
+  @Option(names = "--stream", description = "convert without loading the whole document")
+  private boolean stream;
+
+  @Option(
+      names = "--multi-document",
+      description = "convert each of concatenated JSON values, like JSON Lines, into a document")
+  private boolean multiDocument;
+
+  @Option(
+      names = "--anchors",
+      description =
+          "write repeated subtrees once with an anchor and alias them elsewhere, loading the"
+              + " whole document even with --stream")
+  private boolean anchors;
+
+  @Option(
+      names = "--anchor-min-size",
+      paramLabel = "<values>",
+      defaultValue = "8",
+      description =
+          "number of values in the smallest subtree to anchor (default: ${DEFAULT-VALUE})")
+  private int anchorMinSize;
+
   @Parameters private List<Path> files = new ArrayList<>();
 
-  private Yaml yaml;
+  private YamlCommands parent;
+  private InputLimits limits;
+  private ThreadLocal<Yaml> yaml;
+  private ThreadLocal<JsonToYamlTranscoder> transcoder;
 
-  private Reader openForRead(Path file) throws IOException {
+  private JsonParser createParser(ObjectMapper json, Path file) throws IOException {
     if (file.equals(HYPHEN_PATH)) {
-      return new BufferedReader(new InputStreamReader(System.in, charset));
+      return limits.parser(JsonInput.createParser(json.getFactory(), stdin(), charset));
     } else {
-      return Files.newBufferedReader(file, charset);
+      return limits.parser(JsonInput.createParser(json.getFactory(), file, charset));
+    }
+  }
+
+  private boolean save(Path file, OutputBuffer buffer) {
+    try {
+      if (file.equals(HYPHEN_PATH)) {
+        buffer.writeTo(stdout());
+        stdout().flush();
+      } else {
+        writeOutput(buffer, outputFile(file));
+      }
+    } catch (IOException e) {
+      log.error("Failed to save", e);
+      return false;
     }
+
+    return true;
   }
 
-  private Writer openForWrite(Path file) throws IOException {
+  private void save(Path file, OutputBuffer.Content content) throws IOException {
     if (file.equals(HYPHEN_PATH)) {
-      return new BufferedWriter(new OutputStreamWriter(System.out, charset));
+      content.writeTo(stdout());
+      stdout().flush();
     } else {
-      var yamlName = FilenameUtils.removeExtension(file.getFileName().toString()) + ".yaml";
-      return Files.newBufferedWriter(
-          file.resolveSibling(yamlName), charset, CREATE, TRUNCATE_EXISTING);
+      writeOutput(outputFile(file), content);
     }
   }
 
-  private void processFile(Path file) {
+  private Object share(Object document) {
+    return anchors ? new HashConsing(anchorMinSize).share(document) : document;
+  }
+
+  private Iterator<Object> share(Iterator<Object> documents) {
+    if (!anchors) return documents;
+
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return documents.hasNext();
+      }
+
+      @Override
+      public Object next() {
+        return share(documents.next());
+      }
+    };
+  }
+
+  @Override
+  protected List<String> defaultIncludes() {
+    return List.of("**.json");
+  }
+
+  @Override
+  protected Path outputFile(Path file) {
+    var yamlName = FilenameUtils.removeExtension(file.getFileName().toString()) + ".yaml";
+    return file.resolveSibling(yamlName);
+  }
+
+  @Override
+  protected boolean processFile(Path file) {
+    if (multiDocument) {
+      return convertAll(file);
+    } else if (stream && !anchors) {
+      return transcodeFile(file);
+    } else {
+      return loadFile(file);
+    }
+  }
+
+  private boolean transcodeFile(Path file) {
+    try (var parser = createParser(JSON, file)) {
+      save(
+          file,
+          out -> {
+            var writer = new OutputStreamWriter(out, charset);
+            transcoder.get().transcode(parser, writer);
+            writer.flush();
+          });
+    } catch (Exception e) {
+      log.error("Failed to convert", e);
+      return false;
+    }
+
+    return true;
+  }
+
+  private boolean loadFile(Path file) {
+    var json = parent.isCloudFormation() ? CFN_JSON : JSON;
+
     Object value;
-    try (var reader = openForRead(file)) {
-      value = JSON.readValue(reader, Object.class);
+    try (var parser = createParser(json, file)) {
+      value = json.readValue(parser, Object.class);
     } catch (Exception e) {
       log.error("Failed to load", e);
-      return;
+      return false;
     }
 
-    if (parent.isCloudFormation()) value = yaml.load(yaml.dump(value));
-
-    try (var writer = openForWrite(file)) {
-      yaml.dump(value, writer);
+    var buffer = outputBuffer();
+    try (var writer = new OutputStreamWriter(buffer, charset)) {
+      yaml.get().dump(share(value), writer);
     } catch (Exception e) {
       log.error("Failed to save", e);
-      return;
+      return false;
     }
+
+    return save(file, buffer);
+  }
+
+  private boolean convertAll(Path file) {
+    var json = parent.isCloudFormation() ? CFN_JSON : JSON;
+
+    try (var parser = createParser(json, file)) {
+      save(
+          file,
+          out -> {
+            var writer = new OutputStreamWriter(out, charset);
+            if (stream && !anchors) {
+              transcoder.get().transcodeAll(parser, writer);
+            } else {
+              Iterator<Object> documents = json.readerFor(Object.class).readValues(parser);
+              yaml.get().dumpAll(share(documents), writer);
+            }
+            writer.flush();
+          });
+    } catch (Exception e) {
+      log.error("Failed to convert", e);
+      return false;
+    }
+
+    return true;
   }
 
   @Override
   public void run() {
-    yaml = parent.createYaml();
-
-    if (files.isEmpty()) files.add(HYPHEN_PATH);
+    parent = (YamlCommands) spec.parent().userObject();
+    limits = inputLimits();
+    yaml = ThreadLocal.withInitial(parent::createYaml);
+    transcoder = ThreadLocal.withInitial(parent::createTranscoder);
 
-    files.forEach(this::processFile);
+    processFiles(files.isEmpty() ? List.of(HYPHEN_PATH) : files);
   }
 }
@@ -9,17 +9,21 @@ import org.yaml.snakeyaml.DumperOptions.NonPrintableStyle;
 import org.yaml.snakeyaml.DumperOptions.ScalarStyle;
 import org.yaml.snakeyaml.DumperOptions.Version;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.representer.Representer;
 
 import org.dacci.junk.Main.CommandGroup;
+import org.dacci.junk.Main.LazySubcommands;
+import org.dacci.junk.util.CloudFormationConstructor;
+import org.dacci.junk.util.CloudFormationRepresenter;
 import org.dacci.junk.util.CloudFormationYaml;
+import org.dacci.junk.util.JsonToYamlTranscoder;
 
 import lombok.Data;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
-@Command(
-    name = "yaml",
-    subcommands = {FromJson.class})
+@Command(name = "yaml")
+@LazySubcommands({FromJson.class})
 @Data
 public class YamlCommands implements CommandGroup {
   @Option(names = "--disallow-unicode", description = "force ASCII characters only")
@@ -75,7 +79,7 @@ public class YamlCommands implements CommandGroup {
   @Option(names = "--cfn", description = "handle CloudFormation intrinsics")
   private boolean cloudFormation = false;
 
-  public Yaml createYaml() {
+  public DumperOptions createDumperOptions() {
     var dumperOptions = new DumperOptions();
     dumperOptions.setAllowUnicode(allowUnicode);
     dumperOptions.setDefaultScalarStyle(scalarStyle);
@@ -93,7 +97,23 @@ public class YamlCommands implements CommandGroup {
     dumperOptions.setTimeZone(timeZone);
     dumperOptions.setMaxSimpleKeyLength(maxSimpleKeyLength);
     dumperOptions.setNonPrintableStyle(nonPrintableStyle);
+    return dumperOptions;
+  }
 
+  public Yaml createYaml() {
+    var dumperOptions = createDumperOptions();
     return cloudFormation ? new CloudFormationYaml(dumperOptions) : new Yaml(dumperOptions);
   }
+
+  public JsonToYamlTranscoder createTranscoder() {
+    var dumperOptions = createDumperOptions();
+    if (cloudFormation) {
+      return new JsonToYamlTranscoder(
+          dumperOptions,
+          new CloudFormationRepresenter(dumperOptions),
+          new CloudFormationConstructor());
+    } else {
+      return new JsonToYamlTranscoder(dumperOptions, new Representer(dumperOptions));
+    }
+  }
 }
@@ -0,0 +1,240 @@
+package org.dacci.junk;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class FileCommandTest {
+  private static final String STALE = "stale\n";
+
+  @TempDir Path directory;
+
+  private Path input;
+  private Path output;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    input = directory.resolve("template.yaml");
+    output = directory.resolve("template.json");
+    Files.writeString(input, "Key: Value\n", UTF_8);
+  }
+
+  private void execute(String... options) {
+    execute(0, options);
+  }
+
+  private void execute(int expected, String... options) {
+    var args = new ArrayList<>(List.of("json", "from-yaml", "--incremental"));
+    args.addAll(List.of(options));
+    args.add("template.yaml");
+
+    var status =
+        Main.execute(
+            directory,
+            InputStream.nullInputStream(),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            args.toArray(String[]::new));
+    assertThat(status, is(expected));
+  }
+
+  private void assertSkipped(boolean skipped, String... options) throws IOException {
+    Files.writeString(output, STALE, UTF_8);
+    execute(options);
+    assertThat(Files.readString(output, UTF_8), skipped ? is(STALE) : is(not(STALE)));
+  }
+
+  @Test
+  public void testIncremental() throws IOException {
+    execute("--cfn");
+    assertThat(Files.exists(directory.resolve(".junk-manifest")), is(true));
+
+    assertSkipped(true, "--cfn");
+    assertSkipped(false);
+    assertSkipped(true);
+
+    Files.writeString(input, "Key: Other\n", UTF_8);
+    assertSkipped(false);
+    assertSkipped(true);
+
+    Files.delete(output);
+    execute();
+    assertThat(Files.exists(output), is(true));
+  }
+
+  @Test
+  public void testManifest() throws IOException {
+    execute("--manifest", "manifest");
+    assertThat(Files.exists(directory.resolve("manifest")), is(true));
+    assertThat(Files.exists(directory.resolve(".junk-manifest")), is(false));
+
+    assertSkipped(true, "--manifest", "manifest");
+    assertSkipped(false);
+
+    // a manifest that cannot be read falls back to processing every file
+    Files.createDirectory(directory.resolve("unreadable"));
+    assertSkipped(false, "--manifest", "unreadable");
+  }
+
+  @Test
+  public void testWatch() throws Exception {
+    var status = new AtomicInteger(-1);
+    var thread =
+        new Thread(
+            () ->
+                status.set(
+                    Main.execute(
+                        "json", "from-yaml", "--watch", "--debounce", "10", directory.toString())));
+    thread.start();
+    try {
+      awaitOutput(output, "Value");
+
+      Files.writeString(input, "Key: Other\n", UTF_8);
+      awaitOutput(output, "Other");
+
+      var added = directory.resolve("sub/added.yaml");
+      Files.createDirectories(added.getParent());
+      Files.writeString(added, "Key: Added\n", UTF_8);
+      awaitOutput(directory.resolve("sub/added.json"), "Added");
+    } finally {
+      thread.interrupt();
+      thread.join(10_000);
+    }
+    assertThat(status.get(), is(0));
+  }
+
+  private static void awaitOutput(Path file, String content)
+      throws IOException, InterruptedException {
+    for (var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        System.nanoTime() < deadline;
+        Thread.sleep(10)) {
+      if (Files.exists(file) && Files.readString(file, UTF_8).contains(content)) return;
+    }
+    assertThat(Files.readString(file, UTF_8), containsString(content));
+  }
+
+  @Test
+  public void testDirectory() throws IOException {
+    for (var name :
+        List.of("a/one.yaml", "a/b/two.yml", "a/node_modules/three.yaml", "a/four.txt")) {
+      var file = directory.resolve(name);
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, "Key: Value\n", UTF_8);
+    }
+
+    var status =
+        Main.execute(
+            directory,
+            InputStream.nullInputStream(),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            "json",
+            "from-yaml",
+            "--exclude",
+            "**/node_modules",
+            "a");
+    assertThat(status, is(0));
+    assertThat(Files.exists(directory.resolve("a/one.json")), is(true));
+    assertThat(Files.exists(directory.resolve("a/b/two.json")), is(true));
+    assertThat(Files.exists(directory.resolve("a/node_modules/three.json")), is(false));
+    assertThat(Files.exists(directory.resolve("a/four.json")), is(false));
+  }
+
+  private String check(String... options) {
+    var out = new ByteArrayOutputStream();
+    var args = new ArrayList<>(List.of("json", "from-yaml", "--check"));
+    args.addAll(List.of(options));
+    args.add("template.yaml");
+
+    var status =
+        Main.execute(
+            directory,
+            InputStream.nullInputStream(),
+            new PrintStream(out, true, UTF_8),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            args.toArray(String[]::new));
+    var listed = out.toString(UTF_8);
+    assertThat(status, is(listed.isEmpty() ? 0 : 1));
+    return listed;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"--stream", "--json-lines"})
+  public void testUnchangedOutput(String option) throws IOException {
+    var file = option.equals("--json-lines") ? directory.resolve("template.jsonl") : output;
+    for (var i = 0; i < 2; ++i) {
+      var status =
+          Main.execute(
+              directory,
+              InputStream.nullInputStream(),
+              new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+              new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+              "json",
+              "from-yaml",
+              option,
+              "template.yaml");
+      assertThat(status, is(0));
+      if (i == 0) Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+    }
+    assertThat(Files.getLastModifiedTime(file), is(FileTime.fromMillis(0)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"--stream", "--json-lines"})
+  public void testCheck(String option) throws IOException {
+    var file = option.equals("--json-lines") ? directory.resolve("template.jsonl") : output;
+    assertThat(check(option), is(file + System.lineSeparator()));
+    assertThat(Files.exists(file), is(false));
+
+    execute(option);
+    assertThat(check(option), is(emptyString()));
+
+    var content = Files.readString(file, UTF_8);
+    for (var stale : List.of(content.replace("Value", "Other"), content + "\n", "{")) {
+      Files.writeString(file, stale, UTF_8);
+      assertThat(check(option), is(file + System.lineSeparator()));
+      assertThat(Files.readString(file, UTF_8), is(stale));
+    }
+  }
+
+  @Test
+  public void testLimits() throws IOException {
+    execute(1, "--max-document-bytes", "5");
+    assertThat(Files.exists(output), is(false));
+
+    execute("--max-document-bytes", "0");
+    assertThat(Files.exists(output), is(true));
+
+    // the limits do not affect the output, and so are not recorded in the manifest
+    assertSkipped(true, "--max-depth", "10", "--timeout", "60000");
+  }
+
+  @Test
+  public void testTimeout() throws IOException {
+    Files.writeString(input, "- {Key: Value}\n".repeat(200_000), UTF_8);
+
+    execute(1, "--max-code-points", "0", "--timeout", "1");
+    assertThat(Files.exists(output), is(false));
+
+    execute("--max-code-points", "0", "--timeout", "60000");
+    assertThat(Files.exists(output), is(true));
+  }
+}
@@ -0,0 +1,52 @@
+package org.dacci.junk;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.dacci.junk.json.JsonCommands;
+import org.dacci.junk.json.SortConfig;
+
+public class MainTest {
+  @TempDir Path directory;
+
+  @Test
+  public void testLazySubcommands() {
+    var commandLine = Main.createCommandLine("json", "sort-config", "file.json");
+
+    var json = commandLine.getSubcommands().get("json");
+    assertThat(json.getCommand(), is(instanceOf(JsonCommands.class)));
+    assertThat(
+        json.getSubcommands().get("sort-config").getCommand(), is(instanceOf(SortConfig.class)));
+    assertThat(json.getSubcommands().get("from-yaml").getCommand(), is(nullValue()));
+
+    var yaml = commandLine.getSubcommands().get("yaml");
+    assertThat(yaml.getCommand(), is(nullValue()));
+    assertThat(yaml.getSubcommands(), is(anEmptyMap()));
+  }
+
+  @Test
+  public void testCommandGroupUsage() {
+    var stdout = new ByteArrayOutputStream();
+    var status =
+        Main.execute(
+            directory,
+            InputStream.nullInputStream(),
+            new PrintStream(stdout, true, UTF_8),
+            new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+            "json");
+
+    assertThat(status, is(0));
+    assertThat(stdout.toString(UTF_8), containsString("Usage: junk json [COMMAND]"));
+    assertThat(stdout.toString(UTF_8), containsString("sort-config"));
+    assertThat(stdout.toString(UTF_8), containsString("from-yaml"));
+  }
+}
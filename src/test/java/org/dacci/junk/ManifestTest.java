@@ -0,0 +1,58 @@
+package org.dacci.junk;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ManifestTest {
+  @TempDir Path directory;
+
+  @Test
+  public void testSave() throws IOException {
+    var file = directory.resolve("manifest");
+    var manifest = Manifest.load(file, "command", "");
+    manifest.put(directory.resolve("b #1"), "hash");
+    manifest.put(directory.resolve("a"), "hash");
+    manifest.save();
+
+    var content = Files.readString(file, UTF_8);
+    assertThat(content.lines().filter(line -> line.startsWith("#")).count(), is(0L));
+    assertThat(content.lines().count(), is(2L));
+    assertThat(content.indexOf("/a="), lessThan(content.indexOf("/b")));
+
+    manifest = Manifest.load(file, "command", "");
+    assertThat(manifest.contains(directory.resolve("b #1"), "hash"), is(true));
+    assertThat(manifest.contains(directory.resolve("a"), "other"), is(false));
+
+    // an entry put again as it was does not rewrite the manifest
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+    manifest.put(directory.resolve("a"), "hash");
+    manifest.save();
+    assertThat(Files.getLastModifiedTime(file), is(FileTime.fromMillis(0)));
+    assertThat(Files.readString(file, UTF_8), is(content));
+  }
+
+  @Test
+  public void testMerge() throws IOException {
+    var file = directory.resolve("manifest");
+    var first = Manifest.load(file, "command", "");
+    var second = Manifest.load(file, "command", "");
+
+    first.put(directory.resolve("a"), "hash");
+    second.put(directory.resolve("b"), "hash");
+    first.save();
+    second.save();
+
+    var manifest = Manifest.load(file, "command", "");
+    assertThat(manifest.contains(directory.resolve("a"), "hash"), is(true));
+    assertThat(manifest.contains(directory.resolve("b"), "hash"), is(true));
+  }
+}
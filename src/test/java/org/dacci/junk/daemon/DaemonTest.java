@@ -0,0 +1,137 @@
+package org.dacci.junk.daemon;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import picocli.CommandLine;
+
+public class DaemonTest {
+  @TempDir Path directory;
+
+  private Path file;
+  private Thread daemon;
+
+  @BeforeEach
+  public void setUp() throws InterruptedException {
+    file = directory.resolve("daemon");
+    daemon = new Thread(() -> new CommandLine(new Daemon()).execute("--file", file.toString()));
+    daemon.start();
+
+    while (!Files.exists(file)) Thread.sleep(10);
+  }
+
+  @AfterEach
+  public void tearDown() throws InterruptedException {
+    new CommandLine(new Daemon()).execute("--file", file.toString(), "--stop");
+    daemon.join();
+    assertThat(Files.exists(file), is(false));
+  }
+
+  private int execute(ByteArrayOutputStream stdout, String... args) throws IOException {
+    return execute(stdout, new ByteArrayOutputStream(), args);
+  }
+
+  private int execute(ByteArrayOutputStream stdout, ByteArrayOutputStream stderr, String... args)
+      throws IOException {
+    return execute(InputStream.nullInputStream(), stdout, stderr, args);
+  }
+
+  private int execute(
+      InputStream stdin, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr, String... args)
+      throws IOException {
+    try (var client = Client.connect(file)) {
+      return client.execute(directory, stdin, stdout, stderr, args);
+    }
+  }
+
+  @Test
+  public void testStandardStreams() throws IOException {
+    Files.writeString(directory.resolve("a.json"), "{\"b\":1,\"a\":2}", UTF_8);
+
+    var stdout = new ByteArrayOutputStream();
+    assertThat(execute(stdout, "json", "sort-config", "--check", "a.json"), is(1));
+    assertThat(stdout.toString(UTF_8), is(directory.resolve("a.json") + System.lineSeparator()));
+  }
+
+  @Test
+  public void testStandardInput() throws IOException {
+    var stdin = new ByteArrayInputStream("{\"a\": 1}".getBytes(UTF_8));
+    var stdout = new ByteArrayOutputStream();
+    var stderr = new ByteArrayOutputStream();
+    assertThat(execute(stdin, stdout, stderr, "yaml", "from-json"), is(0));
+    assertThat(stdout.toString(UTF_8), is("{a: 1}\n"));
+  }
+
+  @Test
+  public void testFailure() throws IOException {
+    Files.writeString(directory.resolve("a.json"), "{", UTF_8);
+
+    var stderr = new ByteArrayOutputStream();
+    assertThat(execute(new ByteArrayOutputStream(), stderr, "yaml", "from-json", "a.json"), is(1));
+    assertThat(stderr.toString(UTF_8), containsString("Failed to load"));
+  }
+
+  @Test
+  public void testWatchRejected() throws IOException {
+    Files.writeString(directory.resolve("a.json"), "{}", UTF_8);
+
+    var stderr = new ByteArrayOutputStream();
+    var status =
+        execute(new ByteArrayOutputStream(), stderr, "yaml", "from-json", "--watch", "a.json");
+    assertThat(status, is(1));
+    assertThat(stderr.toString(UTF_8), containsString("through the daemon"));
+  }
+
+  @Test
+  public void testStopForwarded() throws IOException, InterruptedException {
+    var stderr = new ByteArrayOutputStream();
+    var status =
+        execute(new ByteArrayOutputStream(), stderr, "daemon", "--file", file.toString(), "--stop");
+    assertThat(status, is(0));
+    assertThat(stderr.toString(UTF_8), is(""));
+
+    daemon.join();
+    setUp();
+  }
+
+  @Test
+  public void testWorkingDirectory() throws IOException {
+    Files.writeString(directory.resolve("a.json"), "{\"b\":1,\"a\":2}", UTF_8);
+    Files.writeString(directory.resolve("b.json"), "{\"d\":1,\"c\":2}", UTF_8);
+
+    var stdout = new ByteArrayOutputStream();
+    assertThat(execute(stdout, "json", "sort-config", "a.json"), is(0));
+    assertThat(execute(stdout, "json", "sort-config", "b.json"), is(0));
+
+    assertThat(
+        Files.readString(directory.resolve("a.json"), UTF_8),
+        is("{\n    \"a\": 2,\n    \"b\": 1\n}\n"));
+    assertThat(
+        Files.readString(directory.resolve("b.json"), UTF_8),
+        is("{\n    \"c\": 2,\n    \"d\": 1\n}\n"));
+  }
+
+  @Test
+  public void testInvalidToken() throws IOException {
+    var properties = Files.readString(file, UTF_8);
+    Files.writeString(file, properties.replaceAll("token=.*", "token=invalid"), UTF_8);
+
+    var stdout = new ByteArrayOutputStream();
+    assertThat(execute(stdout, "yaml", "from-json"), is(1));
+
+    Files.writeString(file, properties, UTF_8);
+  }
+}
@@ -0,0 +1,141 @@
+package org.dacci.junk.json;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.dacci.junk.util.CloudFormationModule;
+import org.dacci.junk.util.CloudFormationYaml;
+import org.dacci.junk.util.JsonStringifyPrettyPrinter;
+
+import picocli.CommandLine;
+
+public class FromYamlTest {
+  private static final int FILES = 256;
+  private static final int RESOURCES = 50;
+
+  private static final ObjectMapper JSON =
+      new ObjectMapper()
+          .setDefaultPrettyPrinter(JsonStringifyPrettyPrinter.builder().build())
+          .registerModule(CloudFormationModule.getInstance());
+
+  private static String template(int seed) {
+    var yaml = new StringBuilder("Resources:\n");
+    for (var i = 0; i < RESOURCES; ++i) {
+      var name = "R" + seed + "x" + i;
+      yaml.append("  ")
+          .append(name)
+          .append(":\n")
+          .append("    Type: AWS::SNS::Topic\n")
+          .append("    Properties:\n")
+          .append("      TopicName: !Sub '${AWS::StackName}-")
+          .append(name)
+          .append("'\n")
+          .append("      Size: ")
+          .append(seed * i)
+          .append('\n')
+          .append("      Tags: [!Ref ")
+          .append(name)
+          .append(", !GetAtt ")
+          .append(name)
+          .append(".Arn, ")
+          .append(i % 2 == 0)
+          .append("]\n");
+    }
+    return yaml.toString();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void testConcurrentConversion(boolean stream, @TempDir Path directory) throws IOException {
+    var yaml = new CloudFormationYaml();
+    var args = new ArrayList<>(List.of("--cfn", "--jobs", "16"));
+    if (stream) args.add("--stream");
+
+    var expected = new ArrayList<String>();
+    for (var i = 0; i < FILES; ++i) {
+      var template = template(i);
+      expected.add(
+          JSON.writer().withDefaultPrettyPrinter().writeValueAsString(yaml.load(template)));
+      args.add(Files.writeString(directory.resolve(i + ".yaml"), template, UTF_8).toString());
+    }
+
+    new CommandLine(new FromYaml()).execute(args.toArray(String[]::new));
+
+    for (var i = 0; i < FILES; ++i) {
+      var actual = Files.readString(directory.resolve(i + ".json"), UTF_8);
+      assertThat(actual, is(expected.get(i)));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void testMultipleDocuments(boolean stream, @TempDir Path directory) throws IOException {
+    var file = directory.resolve("stream.yaml");
+    Files.writeString(file, "a: !Ref A\n---\n[1, {b: c}]\n---\n", UTF_8);
+    Files.writeString(directory.resolve("stream-4.json"), "stale", UTF_8);
+
+    var args = new ArrayList<>(List.of("--cfn", "--json-lines", file.toString()));
+    if (stream) args.add("--stream");
+    new CommandLine(new FromYaml()).execute(args.toArray(String[]::new));
+    assertThat(
+        Files.readString(directory.resolve("stream.jsonl"), UTF_8),
+        is("{\"a\":{\"Ref\":\"A\"}}\n[1,{\"b\":\"c\"}]\nnull\n"));
+
+    args.set(1, "--split");
+    new CommandLine(new FromYaml()).execute(args.toArray(String[]::new));
+    assertThat(
+        Files.readString(directory.resolve("stream-2.json"), UTF_8),
+        is(
+            JSON.writer()
+                .withDefaultPrettyPrinter()
+                .writeValueAsString(List.of(1, Map.of("b", "c")))));
+    assertThat(Files.exists(directory.resolve("stream-3.json")), is(true));
+    assertThat(Files.exists(directory.resolve("stream-4.json")), is(false));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void testDuplicateKeys(boolean stream, @TempDir Path directory) throws IOException {
+    var file = Files.writeString(directory.resolve("duplicate.yaml"), "a: 1\nb: 2\na: 3\n", UTF_8);
+
+    var args = new ArrayList<>(List.of(file.toString()));
+    if (stream) args.add("--stream");
+    assertThat(new CommandLine(new FromYaml()).execute(args.toArray(String[]::new)), is(1));
+    assertThat(Files.exists(directory.resolve("duplicate.json")), is(false));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void testExpandedAliases(boolean stream, @TempDir Path directory) throws IOException {
+    // each level doubles the expanded size of the one below
+    var yaml = new StringBuilder("a0: &a0 [x, y]\n");
+    for (var i = 1; i <= 16; ++i) {
+      yaml.append(String.format("a%d: &a%1$d [*a%d, *a%2$d]\n", i, i - 1));
+    }
+    var file = Files.writeString(directory.resolve("aliases.yaml"), yaml, UTF_8);
+    var output = directory.resolve("aliases.json");
+
+    var args = new ArrayList<>(List.of("--max-expanded-bytes", "65536", file.toString()));
+    if (stream) args.add("--stream");
+    new CommandLine(new FromYaml()).execute(args.toArray(String[]::new));
+    assertThat(Files.exists(output), is(false));
+
+    args.set(1, "1000000000");
+    new CommandLine(new FromYaml()).execute(args.toArray(String[]::new));
+    assertThat(Files.size(output), is(greaterThan(1L << 20)));
+  }
+}
@@ -0,0 +1,57 @@
+package org.dacci.junk.json;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import picocli.CommandLine;
+
+public class SortConfigTest {
+  @Test
+  public void testSort(@TempDir Path directory) throws IOException {
+    var file =
+        Files.writeString(
+            directory.resolve("config.json"),
+            "{\"b\": {\"[z]\": 1, \"a\": 2, \"B\": [{\"y\": 1, \"x\": 1e3}]},"
+                + " \"[a]\": 1.50, \"a\": \"\\u00e9\", \"a\": 0, \"e\": {}, \"f\": [],"
+                + " \"big\": 123456789012345678901234567890}",
+            UTF_8);
+
+    assertThat(new CommandLine(new SortConfig()).execute(file.toString()), is(0));
+    assertThat(
+        Files.readString(file, UTF_8),
+        is(
+            "{\n"
+                + "    \"a\": 0,\n"
+                + "    \"b\": {\n"
+                + "        \"B\": [\n"
+                + "            {\n"
+                + "                \"x\": 1e3,\n"
+                + "                \"y\": 1\n"
+                + "            }\n"
+                + "        ],\n"
+                + "        \"[z]\": 1,\n"
+                + "        \"a\": 2\n"
+                + "    },\n"
+                + "    \"big\": 123456789012345678901234567890,\n"
+                + "    \"e\": {},\n"
+                + "    \"f\": [],\n"
+                + "    \"[a]\": 1.50\n"
+                + "}\n"));
+  }
+
+  @Test
+  public void testNotObject(@TempDir Path directory) throws IOException {
+    var file = Files.writeString(directory.resolve("config.json"), "[1, 2]", UTF_8);
+
+    new CommandLine(new SortConfig()).execute(file.toString());
+    assertThat(Files.readString(file, UTF_8), is("[1, 2]"));
+  }
+}
@@ -141,4 +141,44 @@ public class CloudFormationModuleTest {
     var actual = json.writeValueAsString(condition);
     assertThat(actual, is("{\"Condition\":\"someCondition\"}"));
   }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "{\"Fn::Base64\":\"valueToEncode\"}",
+        "{\"Fn::Base64\":{\"Fn::Sub\":\"string\"}}",
+        "{\"Fn::Cidr\":[\"192.168.0.0/24\",6,5]}",
+        "{\"Fn::And\":[{\"Condition\":\"a\"},{\"Fn::Not\":[{\"Condition\":\"b\"}]}]}",
+        "{\"Fn::Equals\":[{\"Ref\":\"AWS::Region\"},\"us-east-1\"]}",
+        "{\"Fn::If\":[\"a\",{\"Ref\":\"b\"},{\"Ref\":\"AWS::NoValue\"}]}",
+        "{\"Fn::Or\":[{\"Condition\":\"a\"},{\"Condition\":\"b\"}]}",
+        "{\"Fn::FindInMap\":[\"MapName\",{\"Ref\":\"Key\"},\"SecondLevelKey\"]}",
+        "{\"Fn::GetAtt\":[\"myELB\",\"DNSName\"]}",
+        "{\"Fn::GetAZs\":\"\"}",
+        "{\"Fn::ImportValue\":\"sharedValueToImport\"}",
+        "{\"Fn::Join\":[\":\",[\"a\",{\"Ref\":\"b\"}]]}",
+        "{\"Fn::Select\":[1,{\"Fn::GetAZs\":\"\"}]}",
+        "{\"Fn::Split\":[\"|\",\"a|b|c\"]}",
+        "{\"Fn::Sub\":\"String\"}",
+        "{\"Fn::Sub\":[\"String\",{\"Var1Name\":{\"Ref\":\"Var1Value\"}}]}",
+        "{\"Fn::Transform\":{\"Name\":\"macro_name\",\"Parameters\":{\"key\":\"value\"}}}",
+        "{\"Ref\":\"logicalName\"}",
+        "{\"Condition\":\"someCondition\"}",
+        "{\"Ref\":\"logicalName\",\"Other\":{\"Ref\":\"x\"}}",
+        "{\"Resources\":{\"A\":{\"Condition\":\"c\",\"Properties\":{\"Key\":[]}}}}",
+      })
+  public void testDeserialize(String text) throws JsonProcessingException {
+    var yaml = new CloudFormationYaml();
+    var expected = yaml.load(yaml.dump(new ObjectMapper().readValue(text, Object.class)));
+
+    var actual = json.readValue(text, Object.class);
+    assertThat(actual, is(expected));
+    assertThat(json.writeValueAsString(actual), is(text));
+  }
+
+  @Test
+  public void testDeserializeTyped() throws JsonProcessingException {
+    var actual = json.readValue("{\"Fn::GetAtt\":\"myELB.DNSName\"}", GetAtt.class);
+    assertThat(actual, is(new GetAtt("myELB", "DNSName")));
+  }
 }
@@ -0,0 +1,70 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.dacci.junk.util.cfn.If;
+
+public class HashConsingTest {
+  private static final ObjectMapper JSON =
+      new ObjectMapper().registerModule(CloudFormationModule.getInstance());
+
+  private static Map<String, Object> read(String json) throws IOException {
+    return JSON.readValue(json, new TypeReference<Map<String, Object>>() {});
+  }
+
+  @Test
+  public void testShare() throws IOException {
+    var document =
+        read(
+            "{\"a\": {\"Tags\": [{\"Key\": \"k\", \"Value\": 1}], \"Small\": [1]},"
+                + " \"b\": {\"Tags\": [{\"Key\": \"k\", \"Value\": 1}], \"Small\": [1]},"
+                + " \"c\": {\"Tags\": [{\"Value\": 1, \"Key\": \"k\"}]}}");
+    var shared = new HashConsing(4).share(document);
+    assertThat(shared, is(sameInstance(document)));
+
+    var a = (Map<?, ?>) document.get("a");
+    var b = (Map<?, ?>) document.get("b");
+    var c = (Map<?, ?>) document.get("c");
+    assertThat(b, is(sameInstance(a)));
+    // the order of entries matters
+    assertThat(c.get("Tags"), is(not(sameInstance(a.get("Tags")))));
+
+    document = read("{\"a\": {\"Small\": [1]}, \"b\": {\"Small\": [1]}}");
+    new HashConsing(4).share(document);
+    assertThat(document.get("b"), is(not(sameInstance(document.get("a")))));
+  }
+
+  @Test
+  public void testIntrinsics() throws IOException {
+    var json =
+        "{\"a\": {\"Fn::If\": [\"C\", {\"Fn::Join\": [\"-\", [\"x\", {\"Ref\": \"R\"}]]}, \"y\"]},"
+            + " \"b\": {\"Fn::If\": [\"C\", {\"Fn::Join\": [\"-\", [\"x\", {\"Ref\": \"R\"}]]}, \"y\"]}}";
+    var document = read(json);
+    new HashConsing(4).share(document);
+    assertThat(document.get("a"), is(instanceOf(If.class)));
+    assertThat(document.get("b"), is(sameInstance(document.get("a"))));
+
+    var yaml = new CloudFormationYaml();
+    var dumped = yaml.dump(document);
+    assertThat(dumped, containsString("a: &id001 !If"));
+    assertThat(dumped, containsString("b: *id001"));
+    assertThat(yaml.load(dumped), is(read(json)));
+  }
+
+  @Test
+  public void testDocumentShared() throws IOException {
+    List<Object> list = JSON.readValue("[[1, 2, 3], [1, 2, 3]]", new TypeReference<>() {});
+    new HashConsing(1).share(list);
+    assertThat(list.get(1), is(sameInstance(list.get(0))));
+  }
+}
@@ -0,0 +1,97 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class InputLimitsTest {
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+  private static final InputLimits LIMITS =
+      InputLimits.builder().maxDepth(3).maxCodePoints(32).maxAliases(1).maxStringLength(4).build();
+
+  private static Object loadYaml(String yaml) {
+    var constructor = new Constructor();
+    constructor.setComposer(
+        new Composer(
+            LIMITS.parser(new StringReader(yaml)), new Resolver(), LIMITS.loaderOptions()));
+    return constructor.getSingleData(Object.class);
+  }
+
+  private static Object readJson(String json) throws IOException {
+    try (var parser = LIMITS.parser(JSON.getFactory().createParser(json))) {
+      return JSON.readValue(parser, Object.class);
+    }
+  }
+
+  @Test
+  public void testWithinLimits() throws IOException {
+    assertThat(
+        loadYaml("a: [[b], &x [c], *x]\n"), is(readJson("{\"a\": [[\"b\"], [\"c\"], [\"c\"]]}")));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "a: [[[b]]]\n",
+        "a: bbbbb\n",
+        "aaaaa: b\n",
+        "a: [bbbb, cccc, dddd, eeee, ffff]\n",
+        "a: &x [b]\nc: *x\nd: *x\n"
+      })
+  public void testYamlLimits(String yaml) {
+    assertThrows(YAMLException.class, () -> loadYaml(yaml));
+  }
+
+  @Test
+  public void testCodePointsPerDocument() {
+    var limits = InputLimits.builder().maxCodePoints(4096).build();
+    var constructor = new Constructor();
+    constructor.setComposer(
+        new Composer(
+            limits.parser(new StringReader("---\na: 1\n".repeat(2000))),
+            new Resolver(),
+            limits.loaderOptions()));
+
+    var count = 0;
+    for (; constructor.checkData(); ++count) constructor.getData();
+    assertThat(count, is(2000));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"{\"a\": [[[1]]]}", "{\"a\": \"bbbbb\"}", "{\"aaaaa\": 1}"})
+  public void testJsonLimits(String json) {
+    assertThrows(JsonParseException.class, () -> readJson(json));
+  }
+
+  @Test
+  public void testInterrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(InterruptedIOException.class, () -> readJson("{\"a\": 1}"));
+      assertThrows(
+          InterruptedIOException.class,
+          () -> LIMITS.input(new ByteArrayInputStream(new byte[1])).read());
+      var e = assertThrows(YAMLException.class, () -> loadYaml("a: 1\n"));
+      assertThat(e.getCause(), is(instanceOf(InterruptedIOException.class)));
+    } finally {
+      Thread.interrupted();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package org.dacci.junk.util;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonInputTest {
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final String DOCUMENT = "{\"key\":\"välue\"}";
+
+  @TempDir Path directory;
+
+  private Object read(Path file, Charset charset) throws IOException {
+    try (var parser = JsonInput.createParser(JSON.getFactory(), file, charset)) {
+      return JSON.readValue(parser, Object.class);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"UTF-8", "UTF-16BE", "UTF-16LE", "UTF-32BE", "ISO-8859-1"})
+  public void testCharset(String name) throws IOException {
+    var charset = Charset.forName(name);
+    var file = Files.writeString(directory.resolve("file.json"), DOCUMENT, charset);
+
+    assertThat(read(file, charset), is(Map.of("key", "välue")));
+    // the encoding is detected regardless of the charset given
+    if (JsonInput.isDetectable(charset)) {
+      assertThat(read(file, UTF_8), is(Map.of("key", "välue")));
+    }
+  }
+
+  @Test
+  public void testByteOrderMark() throws IOException {
+    var file = Files.writeString(directory.resolve("file.json"), "\uFEFF" + DOCUMENT, UTF_8);
+    assertThat(read(file, UTF_8), is(Map.of("key", "välue")));
+
+    var in = new ByteArrayInputStream(Files.readAllBytes(file));
+    try (var parser = JsonInput.createParser(JSON.getFactory(), in, UTF_8)) {
+      assertThat(JSON.readValue(parser, Object.class), is(Map.of("key", "välue")));
+    }
+  }
+
+  @Test
+  public void testLargeFile() throws IOException {
+    var json = new StringBuilder("[");
+    for (var i = 0; i < 200_000; ++i) json.append(i).append(",\"välue\",");
+    json.append("null]");
+    var file = Files.writeString(directory.resolve("file.json"), json, UTF_8);
+
+    var value = (List<?>) read(file, UTF_8);
+    assertThat(value.size(), is(400_001));
+    assertThat(value.get(399_999), is("välue"));
+  }
+}
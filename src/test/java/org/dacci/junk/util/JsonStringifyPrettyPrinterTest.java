@@ -0,0 +1,92 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class JsonStringifyPrettyPrinterTest {
+  /** Documents and their output of {@code JSON.stringify(document, null, indent)} by Node.js. */
+  private static class Golden {
+    public List<Object> documents;
+    public Map<String, List<String>> expected;
+  }
+
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+  private static ObjectMapper mapper(JsonStringifyPrettyPrinter printer) {
+    return new ObjectMapper()
+        .setDefaultPrettyPrinter(printer)
+        .enable(SerializationFeature.INDENT_OUTPUT);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"2", "4", "\t"})
+  public void testGolden(String indent) throws IOException {
+    Golden golden;
+    try (var in = getClass().getResourceAsStream(getClass().getSimpleName() + ".json")) {
+      golden = JSON.readValue(in, Golden.class);
+    }
+
+    var indentString = indent.equals("\t") ? indent : " ".repeat(Integer.parseInt(indent));
+    var mapper =
+        mapper(
+            JsonStringifyPrettyPrinter.builder().lineSeparator("\n").indent(indentString).build());
+
+    var expected = golden.expected.get(indent);
+    for (var i = 0; i < golden.documents.size(); ++i) {
+      var document = golden.documents.get(i);
+      // a root object is followed by a line separator to end the file
+      var suffix = document instanceof Map ? "\n" : "";
+      assertThat(mapper.writeValueAsString(document), is(expected.get(i) + suffix));
+    }
+  }
+
+  @Test
+  public void testCompactArrays() throws IOException {
+    var printer = JsonStringifyPrettyPrinter.builder().lineSeparator("\n").arrayWidth(40).build();
+    var document =
+        JSON.readValue(
+            "{\"a\": [1, \"two\", 3.5, true, null], \"b\": [[1, 2], {\"c\": []}],"
+                + " \"long\": [\"aaaaaaaaaaaaaaa\", \"bbbbbbbbbbbbbbb\"]}",
+            new TypeReference<Map<String, Object>>() {});
+    document.put("d", List.of(Double.NaN));
+
+    var writer = new StringWriter();
+    var mapper = mapper(printer);
+    try (var generator = printer.compactArrays(mapper.writer().createGenerator(writer))) {
+      mapper.writeValue(generator, document);
+    }
+
+    assertThat(
+        writer.toString(),
+        is(
+            "{\n"
+                + "  \"a\": [1, \"two\", 3.5, true, null],\n"
+                + "  \"b\": [\n"
+                + "    [1, 2],\n"
+                + "    {\n"
+                + "      \"c\": []\n"
+                + "    }\n"
+                + "  ],\n"
+                + "  \"long\": [\n"
+                + "    \"aaaaaaaaaaaaaaa\",\n"
+                + "    \"bbbbbbbbbbbbbbb\"\n"
+                + "  ],\n"
+                + "  \"d\": [\n"
+                + "    \"NaN\"\n"
+                + "  ]\n"
+                + "}\n"));
+  }
+}
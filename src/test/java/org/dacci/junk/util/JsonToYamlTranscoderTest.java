@@ -0,0 +1,95 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.representer.Representer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonToYamlTranscoderTest {
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+  private static final String DOCUMENT =
+      "{\"a\":1,\"b\":[1,2.5,true,null,\"123\",\"x y\"],\"c\":{\"d\":\"multi\\nline\",\"e\":[]},"
+          + "\"f\":{},\"g\":[{\"h\":\"i\"},[1,[2]]],\"j\":12345678901234567890}";
+
+  private static final String TEMPLATE =
+      "{\"Resources\":{\"Sg\":{\"Type\":\"AWS::EC2::SecurityGroup\",\"Condition\":\"IsProd\","
+          + "\"Properties\":{\"VpcId\":{\"Ref\":\"Vpc\"},\"Name\":{\"Fn::Sub\":\"${AWS::StackName}\"},"
+          + "\"Ip\":{\"Fn::GetAtt\":[\"Instance\",\"PrivateIp\"]},"
+          + "\"Az\":{\"Fn::Select\":[\"0\",{\"Fn::GetAZs\":\"\"}]},"
+          + "\"Ids\":{\"Fn::Join\":[\",\",[{\"Ref\":\"A\"},\"b\"]]},"
+          + "\"Tags\":[{\"Key\":\"a\",\"Value\":{\"Ref\":\"X\"}},{\"Ref\":\"Y\"}]}}}}";
+
+  private static DumperOptions dumperOptions(FlowStyle flowStyle) {
+    var dumperOptions = new DumperOptions();
+    dumperOptions.setDefaultFlowStyle(flowStyle);
+    return dumperOptions;
+  }
+
+  private static String transcode(JsonToYamlTranscoder transcoder, String json) throws IOException {
+    var writer = new StringWriter();
+    transcoder.transcode(JSON.createParser(json), writer);
+    return writer.toString();
+  }
+
+  @ParameterizedTest
+  @EnumSource(FlowStyle.class)
+  public void testTranscode(FlowStyle flowStyle) throws IOException {
+    var dumperOptions = dumperOptions(flowStyle);
+    var expected = new Yaml(dumperOptions).dump(JSON.readValue(DOCUMENT, Object.class));
+
+    var transcoder = new JsonToYamlTranscoder(dumperOptions, new Representer(dumperOptions));
+    assertThat(transcode(transcoder, DOCUMENT), is(expected));
+  }
+
+  @ParameterizedTest
+  @EnumSource(FlowStyle.class)
+  public void testTranscodeCloudFormation(FlowStyle flowStyle) throws IOException {
+    var dumperOptions = dumperOptions(flowStyle);
+    var yaml = new CloudFormationYaml(dumperOptions);
+    var expected = yaml.dump(yaml.load(yaml.dump(JSON.readValue(TEMPLATE, Object.class))));
+
+    var transcoder =
+        new JsonToYamlTranscoder(
+            dumperOptions,
+            new CloudFormationRepresenter(dumperOptions),
+            new CloudFormationConstructor());
+    assertThat(transcode(transcoder, TEMPLATE), is(expected));
+  }
+
+  @ParameterizedTest
+  @EnumSource(FlowStyle.class)
+  public void testExplicitDocument(FlowStyle flowStyle) throws IOException {
+    var dumperOptions = dumperOptions(flowStyle);
+    dumperOptions.setExplicitStart(true);
+    dumperOptions.setExplicitEnd(true);
+    var expected = new Yaml(dumperOptions).dump(JSON.readValue(DOCUMENT, Object.class));
+
+    var transcoder = new JsonToYamlTranscoder(dumperOptions, new Representer(dumperOptions));
+    assertThat(transcode(transcoder, DOCUMENT), is(expected));
+  }
+
+  @ParameterizedTest
+  @EnumSource(FlowStyle.class)
+  public void testTranscodeAll(FlowStyle flowStyle) throws IOException {
+    var dumperOptions = dumperOptions(flowStyle);
+    dumperOptions.setExplicitEnd(true);
+    var json = DOCUMENT + "\n[1, {\"a\": \"b\"}] \"c\"{}\n" + DOCUMENT;
+    var expected = new Yaml(dumperOptions).dumpAll(JSON.readerFor(Object.class).readValues(json));
+
+    var transcoder = new JsonToYamlTranscoder(dumperOptions, new Representer(dumperOptions));
+    var writer = new StringWriter();
+    transcoder.transcodeAll(JSON.createParser(json), writer);
+    assertThat(writer.toString(), is(expected));
+  }
+}
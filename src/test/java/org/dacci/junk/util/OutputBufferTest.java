@@ -0,0 +1,108 @@
+package org.dacci.junk.util;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutputBufferTest {
+  private static final FileTime EPOCH = FileTime.fromMillis(0);
+
+  @TempDir Path directory;
+
+  private static boolean write(String content, Path file) throws IOException {
+    var buffer = new OutputBuffer();
+    buffer.write(content.getBytes(UTF_8));
+    return buffer.writeTo(file);
+  }
+
+  private String[] list() throws IOException {
+    try (var files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toArray(String[]::new);
+    }
+  }
+
+  @Test
+  public void testCreate() throws IOException {
+    var file = directory.resolve("file");
+    assertThat(write("content", file), is(true));
+    assertThat(Files.readString(file, UTF_8), is("content"));
+    assertThat(list(), is(arrayContaining("file")));
+  }
+
+  @Test
+  public void testUnchanged() throws IOException {
+    var file = directory.resolve("file");
+    Files.writeString(file, "content", UTF_8);
+    Files.setLastModifiedTime(file, EPOCH);
+
+    assertThat(write("content", file), is(false));
+    assertThat(Files.getLastModifiedTime(file), is(EPOCH));
+  }
+
+  @Test
+  public void testReplace() throws IOException {
+    var file = directory.resolve("file");
+    Files.writeString(file, "content", UTF_8);
+    Files.setLastModifiedTime(file, EPOCH);
+
+    for (var content : List.of("content", "contents", "Content", "")) {
+      var bytes = content.getBytes(UTF_8);
+      var written = OutputBuffer.replace(file, out -> out.write(bytes));
+      assertThat(written, is(!content.equals("content")));
+      assertThat(Files.readString(file, UTF_8), is(content));
+    }
+    assertThat(list(), is(arrayContaining("file")));
+
+    Files.setLastModifiedTime(file, EPOCH);
+    assertThat(OutputBuffer.replace(file, out -> {}), is(false));
+    assertThat(Files.getLastModifiedTime(file), is(EPOCH));
+  }
+
+  @Test
+  public void testChanged() throws IOException {
+    var file = directory.resolve("file");
+    Files.writeString(file, "content", UTF_8);
+    Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+
+    assertThat(write("contents", file), is(true));
+    assertThat(write("Content", file), is(true));
+    assertThat(write("", file), is(true));
+    assertThat(Files.readString(file, UTF_8), is(""));
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file)), is("rw-r-----"));
+    assertThat(list(), is(arrayContaining("file")));
+  }
+
+  @Test
+  public void testLargeContent() throws IOException {
+    var content =
+        IntStream.range(0, 100_000).mapToObj(Integer::toString).collect(Collectors.joining("\n"));
+    var file = directory.resolve("file");
+
+    assertThat(write(content, file), is(true));
+    assertThat(write(content, file), is(false));
+    assertThat(write(content.replace("99999", "99998"), file), is(true));
+  }
+
+  @Test
+  public void testSymbolicLink() throws IOException {
+    var file = directory.resolve("file");
+    var link = Files.createSymbolicLink(directory.resolve("link"), file.getFileName());
+    Files.writeString(file, "content", UTF_8);
+
+    assertThat(write("changed", link), is(true));
+    assertThat(Files.isSymbolicLink(link), is(true));
+    assertThat(Files.readString(file, UTF_8), is("changed"));
+  }
+}
@@ -0,0 +1,42 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.dacci.junk.util.cfn.GetAZs;
+import org.dacci.junk.util.cfn.Ref;
+
+public class SymbolTableTest {
+  @Test
+  public void testIntern() {
+    var symbols = new SymbolTable(16, 8);
+    var symbol = symbols.intern(new String("Type"));
+    assertThat(symbols.intern(new String("Type")), is(sameInstance(symbol)));
+
+    // too long to be canonicalized
+    var properties = new String("Properties");
+    assertThat(symbols.intern(properties), is(sameInstance(properties)));
+    assertThat(symbols.intern(null), is(nullValue()));
+  }
+
+  @Test
+  public void testSharedByConstructors() {
+    var yaml = "Type: AWS::EC2::VPC\n";
+    Map<String, Object> first = new CloudFormationYaml().load(yaml);
+    Map<String, Object> second = new CloudFormationYaml().load(yaml);
+
+    var firstEntry = first.entrySet().iterator().next();
+    var secondEntry = second.entrySet().iterator().next();
+    assertThat(secondEntry.getKey(), is(sameInstance(firstEntry.getKey())));
+    assertThat(secondEntry.getValue(), is(sameInstance(firstEntry.getValue())));
+
+    List<Object> intrinsics = new CloudFormationYaml().load("[!Ref Vpc, !GetAZs Vpc]");
+    var reference = ((Ref) intrinsics.get(0)).getReference();
+    assertThat(((GetAZs) intrinsics.get(1)).getRegion(), is(sameInstance(reference)));
+  }
+}
@@ -0,0 +1,189 @@
+package org.dacci.junk.util;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.dacci.junk.util.YamlToJsonTranscoder.DocumentOutput;
+
+public class YamlToJsonTranscoderTest {
+  private static final ObjectMapper JSON =
+      new ObjectMapper()
+          .setDefaultPrettyPrinter(JsonStringifyPrettyPrinter.builder().build())
+          .enable(SerializationFeature.INDENT_OUTPUT);
+
+  private static final ObjectMapper CFN_JSON =
+      JSON.copy().registerModule(CloudFormationModule.getInstance());
+
+  private static String transcode(YamlToJsonTranscoder transcoder, String yaml) throws IOException {
+    var writer = new StringWriter();
+    transcoder.transcode(new StringReader(yaml), writer);
+    return writer.toString();
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "",
+        "---\n",
+        "a: 1\nb: [1, 2.5, true, null, '123', \"x y\", ~, 0x1F, .inf]\nc: {d: e, f: []}\n",
+        "- &x {a: [1, &y 2]}\n- *x\n- *y\n- &x 3\n- *x\n",
+        "a: &x {b: &y [c, d]}\nb: *x\nc: *y\n",
+        "1: one\ntrue: two\n2001-12-14: three\n[a, b]: four\n",
+        "a: !!str 123\nb: !!binary SGVsbG8=\nc: !!set {x, y}\nd: 2001-12-14t21:59:43.10-05:00\n",
+        "Ref: x\nOther: y\n",
+      })
+  public void testTranscode(String yaml) throws IOException {
+    var expected = JSON.writeValueAsString(new Yaml().load(yaml));
+
+    var transcoder = new YamlToJsonTranscoder(new Constructor(), JSON);
+    assertThat(transcode(transcoder, yaml), is(expected));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "Resources:\n"
+            + "  Sg:\n"
+            + "    Type: AWS::EC2::SecurityGroup\n"
+            + "    Condition: IsProd\n"
+            + "    Properties:\n"
+            + "      VpcId: !Ref Vpc\n"
+            + "      Name: !Sub '${AWS::StackName}-sg'\n"
+            + "      Ip: !GetAtt Instance.PrivateIp\n"
+            + "      Az: !Select [0, !GetAZs '']\n"
+            + "      Ids: !Join [',', [!Ref A, b]]\n"
+            + "      Data: {'Fn::Base64': {'Fn::Sub': '${Foo}'}}\n"
+            + "      Cond: {'Fn::If': [IsProd, {Ref: A}, {Ref: 'AWS::NoValue'}]}\n",
+        "a: &x !Ref Vpc\nb: *x\nc: &y {Ref: Vpc}\nd: *y\n",
+        "Ref: x\nOther: &x {Ref: y}\nMore: *x\n",
+        "Condition: &x {Fn::Equals: [a, b]}\nOther: *x\n",
+      })
+  public void testTranscodeCloudFormation(String yaml) throws IOException {
+    var expected = CFN_JSON.writeValueAsString(new CloudFormationYaml().load(yaml));
+
+    var transcoder = new YamlToJsonTranscoder(new CloudFormationConstructor(), CFN_JSON);
+    assertThat(transcode(transcoder, yaml), is(expected));
+  }
+
+  @Test
+  public void testTranscodeAll() throws IOException {
+    var yaml = "a: &x [1, 2]\nb: *x\n---\n--- &x 3\n---\n- 3\n";
+    var expected = new ArrayList<String>();
+    for (var document : new Yaml().loadAll(yaml)) {
+      expected.add(JSON.writeValueAsString(document));
+    }
+
+    var actual = new ArrayList<String>();
+    var transcoder = new YamlToJsonTranscoder(new Constructor(), JSON);
+    transcoder.transcodeAll(
+        new StringReader(yaml),
+        new DocumentOutput() {
+          private StringWriter writer;
+
+          @Override
+          public JsonGenerator begin() throws IOException {
+            writer = new StringWriter();
+            return JSON.writer().createGenerator(writer);
+          }
+
+          @Override
+          public void end(JsonGenerator generator) throws IOException {
+            generator.close();
+            actual.add(writer.toString());
+          }
+        });
+    assertThat(actual, is(expected));
+
+    // anchors do not outlive their document
+    assertThrows(
+        YAMLException.class,
+        () ->
+            transcoder.transcodeAll(
+                new StringReader(yaml.replace("- 3", "- *x")),
+                new DocumentOutput() {
+                  @Override
+                  public JsonGenerator begin() throws IOException {
+                    return JSON.createGenerator(new StringWriter());
+                  }
+
+                  @Override
+                  public void end(JsonGenerator generator) {}
+                }));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"a: 1\n---\nb: 2\n", "a: *x\n", "a: &x [*x]\n", "<<: {a: 1}\nb: 2\n"})
+  public void testUnsupported(String yaml) {
+    var transcoder = new YamlToJsonTranscoder(new Constructor(), JSON);
+    assertThrows(YAMLException.class, () -> transcode(transcoder, yaml));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {"a: 1\na: 2\n", "a: {b: 1, c: 2, b: 3}\n", "1: x\n01: y\n", "Ref: x\nRef: y\n"})
+  public void testDuplicateKeys(String yaml) throws IOException {
+    var options = new LoaderOptions();
+    options.setAllowDuplicateKeys(false);
+    assertThrows(YAMLException.class, () -> new CloudFormationYaml(options).load(yaml));
+
+    var constructor = new CloudFormationConstructor();
+    constructor.setAllowDuplicateKeys(false);
+    var transcoder = new YamlToJsonTranscoder(constructor, CFN_JSON);
+    var e = assertThrows(YAMLException.class, () -> transcode(transcoder, yaml));
+    assertThat(e.getMessage(), containsString("found duplicate key"));
+
+    constructor.setAllowDuplicateKeys(true);
+    assertThat(transcode(transcoder, yaml), is(not(emptyString())));
+  }
+
+  @Test
+  public void testAliasLimit() {
+    var yaml = new StringBuilder("a: &a [x]\n");
+    for (var i = 0; i < 60; ++i) yaml.append("b").append(i).append(": *a\n");
+
+    var transcoder = new YamlToJsonTranscoder(new Constructor(), JSON);
+    assertThrows(YAMLException.class, () -> transcode(transcoder, yaml.toString()));
+  }
+
+  @Test
+  public void testExpansionBudget() throws IOException {
+    // each level doubles the expanded size of the one below
+    var yaml = new StringBuilder("a0: &a0 [xxxxxxxxxxxxxxx]\n");
+    for (var i = 1; i < 20; ++i) {
+      yaml.append("a").append(i).append(": &a").append(i);
+      yaml.append(" [*a").append(i - 1).append(", *a").append(i - 1).append("]\n");
+    }
+
+    var transcoder = new YamlToJsonTranscoder(new Constructor(), JSON);
+    transcoder.setLimits(InputLimits.builder().maxAliases(100).build());
+    transcoder.setMaxExpandedBytes(1 << 16);
+    var e = assertThrows(YAMLException.class, () -> transcode(transcoder, yaml.toString()));
+    assertThat(e.getMessage(), containsString("Size of expanded aliases"));
+
+    transcoder.setMaxExpandedBytes(Long.MAX_VALUE);
+    transcoder.setLimits(InputLimits.builder().maxAliases(8).build());
+    assertThrows(YAMLException.class, () -> transcode(transcoder, yaml.toString()));
+
+    transcoder.setLimits(InputLimits.builder().build());
+    var small = "a: &a {b: &b [1, 2]}\nc: *a\nd: *b\n";
+    assertThat(transcode(transcoder, small), is(JSON.writeValueAsString(new Yaml().load(small))));
+  }
+}
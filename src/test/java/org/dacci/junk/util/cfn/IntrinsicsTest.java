@@ -0,0 +1,92 @@
+package org.dacci.junk.util.cfn;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.dacci.junk.util.CloudFormationModule;
+import org.dacci.junk.util.CloudFormationYaml;
+
+public class IntrinsicsTest {
+  public static class Length {
+    private final List<?> values;
+
+    public Length(List<?> values) {
+      this.values = values;
+    }
+
+    public List<?> getValues() {
+      return values;
+    }
+  }
+
+  /** Registered in {@code META-INF/services} of the test resources. */
+  public static class LengthProvider implements Intrinsic.Provider {
+    @Override
+    public Collection<Intrinsic<?>> intrinsics() {
+      return List.of(
+          Intrinsic.builder("Fn::Length", Length.class)
+              .constructor(argument -> new Length((List<?>) argument))
+              .argument(Length::getValues)
+              .build());
+    }
+  }
+
+  @Test
+  public void testGet() {
+    var intrinsics = Intrinsics.getInstance();
+    assertThat(intrinsics.get("Ref").getTagName(), is("!Ref"));
+    assertThat(intrinsics.get("Fn::GetAZs").getTagName(), is("!GetAZs"));
+    assertThat(intrinsics.get("Fn::Length").getType(), is(Length.class));
+    assertThat(intrinsics.get("Fn::Unknown"), is(nullValue()));
+  }
+
+  @Test
+  public void testProvidedYaml() {
+    var yaml = new CloudFormationYaml();
+
+    Map<String, Object> document =
+        yaml.load("Short: !Length [a, !Ref b]\nFull: {Fn::Length: [c]}\n");
+    var values = ((Length) document.get("Short")).getValues();
+    assertThat(values.get(0), is("a"));
+    assertThat(values.get(1), is(new Ref("b")));
+    assertThat(((Length) document.get("Full")).getValues(), is(List.of("c")));
+
+    assertThat(yaml.dump(document.get("Full")), is("!Length [c]\n"));
+  }
+
+  @Test
+  public void testProvidedJson() throws IOException {
+    var json = new ObjectMapper().registerModule(CloudFormationModule.getInstance());
+
+    var value = json.readValue("{\"Fn::Length\":[\"a\",{\"Ref\":\"b\"}]}", Object.class);
+    assertThat(((Length) value).getValues(), is(List.of("a", new Ref("b"))));
+    assertThat(json.writeValueAsString(value), is("{\"Fn::Length\":[\"a\",{\"Ref\":\"b\"}]}"));
+  }
+
+  @Test
+  public void testInterning() {
+    List<Object> document =
+        new CloudFormationYaml()
+            .load("[!Ref VpcId, {Ref: VpcId}, !GetAtt Vpc.CidrBlock, [!GetAtt [Vpc, CidrBlock]]]");
+    assertThat(document.get(0), is(sameInstance(document.get(1))));
+    assertThat(document.get(2), is(sameInstance(((List<?>) document.get(3)).get(0))));
+    assertThat(Ref.of("VpcId"), is(sameInstance(document.get(0))));
+  }
+
+  @Test
+  public void testConditional() {
+    var conditions = List.of(Ref.of("A"), "b");
+    assertThat(new And(conditions), is(new And(Ref.of("A"), "b")));
+    assertThat(new And(conditions), is(not(new Or(conditions))));
+    assertThat(new And(conditions).getConditions(), is(conditions));
+  }
+}
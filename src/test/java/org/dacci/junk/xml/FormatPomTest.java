@@ -0,0 +1,94 @@
+package org.dacci.junk.xml;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.dacci.junk.Main;
+
+public class FormatPomTest {
+  private static final String POM =
+      "<project><artifactId>%s</artifactId><groupId>org.dacci</groupId>"
+          + "<modelVersion>4.0.0</modelVersion><version>1.0</version></project>";
+
+  @TempDir Path directory;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+  private Path writePom(String name) throws IOException {
+    var file = directory.resolve(name).resolve("pom.xml");
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, String.format(POM, name), UTF_8);
+  }
+
+  private int execute(String... options) {
+    var args = new ArrayList<>(List.of("xml", "format-pom"));
+    args.addAll(List.of(options));
+
+    out.reset();
+    return Main.execute(
+        directory,
+        InputStream.nullInputStream(),
+        new PrintStream(out, true, UTF_8),
+        new PrintStream(new ByteArrayOutputStream(), true, UTF_8),
+        args.toArray(String[]::new));
+  }
+
+  @Test
+  public void testFormat() throws IOException {
+    var file = writePom("a");
+
+    assertThat(execute(file.toString()), is(0));
+    var formatted = Files.readString(file, UTF_8);
+    assertThat(formatted, startsWith("<?xml"));
+    assertThat(
+        formatted,
+        stringContainsInOrder("<modelVersion>", "<groupId>", "<artifactId>a</", "<version>"));
+
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+    assertThat(execute(file.toString()), is(0));
+    assertThat(Files.readString(file, UTF_8), is(formatted));
+    assertThat(Files.getLastModifiedTime(file), is(FileTime.fromMillis(0)));
+  }
+
+  @Test
+  public void testCheck() throws IOException {
+    var file = writePom("a");
+
+    assertThat(execute("--check", file.toString()), is(1));
+    assertThat(out.toString(UTF_8), is(file + System.lineSeparator()));
+    assertThat(Files.readString(file, UTF_8), is(String.format(POM, "a")));
+
+    execute(file.toString());
+    assertThat(execute("--check", file.toString()), is(0));
+    assertThat(out.toString(UTF_8), is(emptyString()));
+  }
+
+  @Test
+  public void testJobs() throws IOException {
+    var files = new ArrayList<Path>();
+    for (var i = 0; i < 16; ++i) files.add(writePom("m" + i));
+
+    assertThat(execute("--jobs", "4", directory.toString()), is(0));
+    for (var i = 0; i < files.size(); ++i) {
+      var file = files.get(i);
+      assertThat(Files.readString(file, UTF_8), containsString("<artifactId>m" + i + "</"));
+      assertThat(Files.readString(file, UTF_8), startsWith("<?xml"));
+    }
+
+    assertThat(execute("--check", "--jobs", "4", directory.toString()), is(0));
+  }
+}